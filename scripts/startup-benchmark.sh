@@ -0,0 +1,168 @@
+#!/usr/bin/env bash
+# ========================================
+# 기동 시간 벤치마크
+# ========================================
+# 일반 bootJar / AOT / AOT+AppCDS 세 가지 모드를 같은 조건으로 반복 기동하여
+# 다음 값을 측정합니다.
+#   - 프로세스 시작 ~ GET /      첫 2xx 응답까지의 시간 (ms)
+#   - 프로세스 시작 ~ POST /upload 첫 OCR 결과 페이지 응답까지의 시간 (ms)
+#     (실제 클로바 OCR 대신 로컬 스텁 서버를 호출하므로 외부 API 지연과 비용이 포함되지 않습니다)
+#   - 기동 후 유휴 상태의 RSS (MB)
+#
+# 사용법:
+#   scripts/startup-benchmark.sh              # 빌드 후 모드별 5회 측정
+#   RUNS=10 SKIP_BUILD=1 scripts/startup-benchmark.sh
+#
+# 환경 변수:
+#   RUNS        모드별 반복 횟수 (기본 5)
+#   PORT        측정에 사용할 포트 (기본 18080)
+#   STUB_PORT   OCR 스텁 서버 포트 (기본 18081)
+#   JAVA_OPTS   모든 모드에 공통으로 붙일 JVM 옵션 (기본 -Xshare:auto)
+#   IMAGE       /upload 에 보낼 이미지 (기본: 내장 1x1 PNG)
+#   IDLE_SEC    RSS 측정 전 대기 시간 (기본 5)
+#   SKIP_BUILD  1 이면 빌드를 생략하고 기존 산출물을 사용
+set -euo pipefail
+
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+BENCH_DIR="$ROOT_DIR/build/bench"
+CDS_DIR="$ROOT_DIR/build/cds/app"
+JAR_NAME="ocr_test-0.0.1-SNAPSHOT.jar"
+
+RUNS="${RUNS:-5}"
+PORT="${PORT:-18080}"
+STUB_PORT="${STUB_PORT:-18081}"
+JAVA_OPTS="${JAVA_OPTS:--Xshare:auto}"
+IDLE_SEC="${IDLE_SEC:-5}"
+JAVA_BIN="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+
+if [[ "${SKIP_BUILD:-0}" != "1" ]]; then
+    echo "==> 일반 bootJar 빌드"
+    (cd "$ROOT_DIR" && sh ./gradlew -q clean bootJar)
+    mkdir -p "$BENCH_DIR"
+    cp "$ROOT_DIR/build/libs/$JAR_NAME" "$BENCH_DIR/plain.jar"
+
+    echo "==> AOT bootJar + AppCDS 아카이브 빌드"
+    (cd "$ROOT_DIR" && sh ./gradlew -q bootJar cdsArchive -PfastStartup)
+fi
+mkdir -p "$BENCH_DIR"
+
+IMAGE="${IMAGE:-$BENCH_DIR/fixture.png}"
+if [[ ! -f "$IMAGE" ]]; then
+    # 1x1 투명 PNG
+    echo "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==" \
+        | base64 -d > "$IMAGE"
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+# 클로바 OCR 응답 형식의 고정 결과를 돌려주는 스텁 서버
+# /upload 가 외부 API 없이 결과 페이지까지 렌더링하도록 합니다.
+python3 - "$STUB_PORT" <<'PY' &
+import sys
+from http.server import BaseHTTPRequestHandler, HTTPServer
+
+BODY = (b'{"images":[{"fields":[{"inferText":"BENCH","inferConfidence":1.0,"lineBreak":true,'
+        b'"boundingPoly":{"vertices":[{"x":0,"y":0},{"x":1,"y":0},{"x":1,"y":1},{"x":0,"y":1}]}}]}]}')
+
+class Handler(BaseHTTPRequestHandler):
+    def do_POST(self):
+        self.rfile.read(int(self.headers.get("Content-Length", 0)))
+        self.send_response(200)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(BODY)))
+        self.end_headers()
+        self.wfile.write(BODY)
+
+    def log_message(self, *args):
+        pass
+
+HTTPServer(("127.0.0.1", int(sys.argv[1])), Handler).serve_forever()
+PY
+STUB_PID=$!
+trap 'kill "$STUB_PID" 2>/dev/null || true' EXIT
+STUB_OPTS=(--clova.ocr.api-url="http://127.0.0.1:$STUB_PORT/ocr" --clova.ocr.secret-key=bench)
+
+# 주어진 명령이 2xx 를 돌려줄 때까지 재시도하고, 성공 시각(ms)을 출력합니다.
+wait_for_2xx() {
+    local deadline=$(( $(now_ms) + 60000 ))
+    while (( $(now_ms) < deadline )); do
+        local code
+        code="$("$@" -s -o /dev/null -w '%{http_code}' 2>/dev/null || true)"
+        if [[ "$code" =~ ^2 ]]; then
+            now_ms
+            return 0
+        fi
+        sleep 0.01
+    done
+    echo "timeout" >&2
+    return 1
+}
+
+# /upload 가 OCR 결과 페이지를 돌려줄 때까지 재시도하고, 성공 시각(ms)을 출력합니다.
+# 검사나 OCR 실패는 302(redirect:/), 설정 오류는 200(index 화면)으로 응답하므로
+# 상태 코드가 200이고 본문에 결과 페이지 표식(result.html 의 <body data-page="ocr-result">)이 있을 때만 성공으로 봅니다.
+# 이 확인은 템플릿의 표식에 의존하므로, result.html 을 바꿀 때 표식을 유지해야 합니다.
+wait_for_result_page() {
+    local deadline=$(( $(now_ms) + 60000 ))
+    local body_file
+    body_file="$(mktemp)"
+    while (( $(now_ms) < deadline )); do
+        local code
+        code="$(curl -s -o "$body_file" -w '%{http_code}' -F "imageFile=@$IMAGE;type=image/png" \
+                "http://localhost:$PORT/upload" 2>/dev/null || true)"
+        if [[ "$code" == "200" ]] && grep -q 'data-page="ocr-result"' "$body_file"; then
+            rm -f "$body_file"
+            now_ms
+            return 0
+        fi
+        sleep 0.01
+    done
+    rm -f "$body_file"
+    echo "timeout" >&2
+    return 1
+}
+
+rss_mb() {
+    awk '/VmRSS/ { printf "%.1f", $2 / 1024 }' "/proc/$1/status"
+}
+
+median() {
+    sort -n | awk '{ a[NR] = $1 } END { if (NR % 2) print a[(NR + 1) / 2]; else print (a[NR / 2] + a[NR / 2 + 1]) / 2 }'
+}
+
+run_mode() {
+    local mode="$1"; shift
+    local root_file upload_file rss_file
+    root_file="$(mktemp)"; upload_file="$(mktemp)"; rss_file="$(mktemp)"
+
+    for ((i = 1; i <= RUNS; i++)); do
+        local start pid t_root t_upload
+        start="$(now_ms)"
+        "$JAVA_BIN" $JAVA_OPTS "$@" --server.port="$PORT" "${STUB_OPTS[@]}" > "$BENCH_DIR/$mode-$i.log" 2>&1 &
+        pid=$!
+
+        t_root="$(wait_for_2xx curl "http://localhost:$PORT/")"
+        t_upload="$(wait_for_result_page)"
+        sleep "$IDLE_SEC"
+
+        echo $(( t_root - start )) >> "$root_file"
+        echo $(( t_upload - start )) >> "$upload_file"
+        rss_mb "$pid" >> "$rss_file"
+
+        kill "$pid"
+        wait "$pid" 2>/dev/null || true
+    done
+
+    printf "%-10s %14s %16s %12s\n" "$mode" \
+        "$(median < "$root_file")" "$(median < "$upload_file")" "$(median < "$rss_file")"
+    rm -f "$root_file" "$upload_file" "$rss_file"
+}
+
+echo
+echo "RUNS=$RUNS, JAVA_OPTS=$JAVA_OPTS (중앙값)"
+printf "%-10s %14s %16s %12s\n" "mode" "first / (ms)" "first /upload (ms)" "idle RSS (MB)"
+run_mode plain   -jar "$BENCH_DIR/plain.jar"
+run_mode aot     -Dspring.aot.enabled=true -jar "$CDS_DIR/$JAR_NAME"
+run_mode aot+cds -XX:SharedArchiveFile="$CDS_DIR/application.jsa" -Dspring.aot.enabled=true -jar "$CDS_DIR/$JAR_NAME"
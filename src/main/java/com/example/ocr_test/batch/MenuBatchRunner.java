@@ -0,0 +1,379 @@
+package com.example.ocr_test.batch;
+
+import com.example.ocr_test.service.ClovaOcrService;
+import com.example.ocr_test.service.OpenAIService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 메뉴판 이미지 일괄 처리 실행기
+ *
+ * batch.input-dir 가 설정된 경우에만 활성화되며, 디렉토리의 이미지를
+ * 읽기 → OCR → 메뉴 분석(LLM) 단계의 파이프라인으로 처리하여 결과를 JSONL 파일에 기록합니다.
+ *
+ * - 단계마다 독립적인 동시 처리 수를 가지며, 단계 사이는 크기가 제한된 큐로 연결되어
+ *   뒤 단계가 느리면 앞 단계가 자동으로 대기합니다(backpressure).
+ * - 결과는 한 건씩 바로 기록되고, 성공한 파일은 체크포인트 파일에 남겨
+ *   중단 후 다시 실행하면 이미 처리한 파일은 건너뜁니다.
+ *
+ * 실행 예:
+ * java -jar ocr_test.jar --spring.main.web-application-type=none --batch.input-dir=/data/menus
+ */
+@Component
+@ConditionalOnProperty(name = "batch.input-dir")
+public class MenuBatchRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MenuBatchRunner.class);
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp", "tif", "tiff", "webp");
+
+    /**
+     * 파이프라인 종료를 알리는 표식
+     */
+    private static final BatchItem END = new BatchItem(null, null);
+
+    @Autowired
+    private ClovaOcrService clovaOcrService;
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    @Value("${batch.input-dir}")
+    private String inputDir;
+
+    /**
+     * 결과 JSONL 파일 경로 (기본값: 입력 디렉토리/menu-results.jsonl)
+     * 체크포인트는 같은 경로에 .checkpoint 를 붙인 파일에 기록됩니다.
+     */
+    @Value("${batch.output-file:}")
+    private String outputFile;
+
+    @Value("${batch.read-concurrency:2}")
+    private int readConcurrency;
+
+    @Value("${batch.ocr-concurrency:4}")
+    private int ocrConcurrency;
+
+    @Value("${batch.llm-concurrency:2}")
+    private int llmConcurrency;
+
+    /**
+     * 단계 사이 큐의 크기 (읽어둔 이미지가 메모리에 쌓이는 최대 개수를 결정)
+     */
+    @Value("${batch.queue-capacity:16}")
+    private int queueCapacity;
+
+    /**
+     * false 로 설정하면 메뉴 분석(LLM) 단계를 건너뛰고 OCR 결과만 기록합니다.
+     */
+    @Value("${batch.analyze-menu:true}")
+    private boolean analyzeMenu;
+
+    /**
+     * 이 크기보다 큰 파일은 읽지 않고 실패로 기록합니다. (메모리에 한꺼번에 읽어 들이므로)
+     */
+    @Value("${batch.max-file-bytes:20971520}")
+    private long maxFileBytes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void run(String... args) throws Exception {
+        Path inputPath = Paths.get(inputDir).toAbsolutePath().normalize();
+        if (!Files.isDirectory(inputPath)) {
+            throw new IllegalArgumentException("batch.input-dir 가 디렉토리가 아닙니다: " + inputPath);
+        }
+        Path outputPath = outputFile.isEmpty() ? inputPath.resolve("menu-results.jsonl") : Paths.get(outputFile);
+        Path checkpointPath = Paths.get(outputPath + ".checkpoint");
+
+        Set<String> completed = loadCheckpoint(checkpointPath);
+        List<Path> pending = findPendingImages(inputPath, completed);
+        log.atInfo()
+                .addKeyValue("inputDir", inputPath)
+                .addKeyValue("total", pending.size() + completed.size())
+                .addKeyValue("completed", completed.size())
+                .addKeyValue("pending", pending.size())
+                .log("배치 시작: 처리 대상 {}건", pending.size());
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        BlockingQueue<BatchItem> readQueue = new LinkedBlockingQueue<>();
+        for (Path path : pending) {
+            readQueue.add(new BatchItem(path, inputPath.relativize(path).toString()));
+        }
+        readQueue.add(END);
+
+        BlockingQueue<BatchItem> ocrQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BatchItem> llmQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BatchItem> writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        List<Thread> workers = new ArrayList<>();
+        workers.addAll(startStage("read", readConcurrency, readQueue, ocrQueue, this::read));
+        workers.addAll(startStage("ocr", ocrConcurrency, ocrQueue, llmQueue, this::ocr));
+        workers.addAll(startStage("llm", llmConcurrency, llmQueue, writeQueue, this::analyze));
+
+        long startedAt = System.nanoTime();
+        int succeeded = 0;
+        int failed = 0;
+        long bytesRead = 0;
+
+        try (BufferedWriter resultWriter = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             BufferedWriter checkpointWriter = Files.newBufferedWriter(checkpointPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+
+            BatchItem item;
+            while ((item = writeQueue.take()) != END) {
+                resultWriter.write(objectMapper.writeValueAsString(item.toResult()));
+                resultWriter.newLine();
+                resultWriter.flush();
+
+                // 결과가 기록된 뒤에만 체크포인트를 남겨, 중단되더라도 결과가 유실되지 않도록 합니다.
+                if (item.error == null) {
+                    checkpointWriter.write(item.relativePath);
+                    checkpointWriter.newLine();
+                    checkpointWriter.flush();
+                    succeeded++;
+                } else {
+                    failed++;
+                }
+                bytesRead += item.size;
+
+                int done = succeeded + failed;
+                if (done % 100 == 0) {
+                    log.atInfo()
+                            .addKeyValue("done", done)
+                            .addKeyValue("pending", pending.size())
+                            .addKeyValue("itemsPerSecond", throughput(done, startedAt))
+                            .log("배치 진행: {}/{}", done, pending.size());
+                }
+            }
+        } finally {
+            workers.forEach(Thread::interrupt);
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        log.atInfo()
+                .addKeyValue("succeeded", succeeded)
+                .addKeyValue("failed", failed)
+                .addKeyValue("elapsedSeconds", elapsedSeconds)
+                .addKeyValue("itemsPerSecond", throughput(succeeded + failed, startedAt))
+                .addKeyValue("megabytesPerSecond", bytesRead / (1024.0 * 1024.0) / Math.max(elapsedSeconds, 0.001))
+                .addKeyValue("output", outputPath)
+                .log("배치 완료: 성공 {}건, 실패 {}건", succeeded, failed);
+    }
+
+    private void read(BatchItem item) throws IOException {
+        long size = Files.size(item.path);
+        if (size > maxFileBytes) {
+            item.size = size;
+            throw new IOException("파일이 너무 큽니다: " + size + " bytes (최대 " + maxFileBytes + " bytes)");
+        }
+        item.imageBytes = Files.readAllBytes(item.path);
+        item.size = item.imageBytes.length;
+    }
+
+    private void ocr(BatchItem item) throws IOException {
+        String fileName = item.path.getFileName().toString();
+        long startedAt = System.nanoTime();
+        Map<String, Object> ocrResult = clovaOcrService.extractTextFromImage(item.imageBytes, fileName, contentTypeOf(fileName));
+        item.ocrMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        @SuppressWarnings("unchecked")
+        List<String> extractedTexts = (List<String>) ocrResult.get("extractedTexts");
+        item.extractedTexts = extractedTexts;
+        @SuppressWarnings("unchecked")
+        List<String> menuLines = (List<String>) ocrResult.getOrDefault("menuLines", extractedTexts);
+        item.menuLines = menuLines;
+        // OCR 이후에는 이미지가 필요 없으므로 큐에 쌓인 동안 메모리를 잡아두지 않도록 해제합니다.
+        item.imageBytes = null;
+    }
+
+    private void analyze(BatchItem item) throws IOException {
+        if (!analyzeMenu || item.menuLines.isEmpty()) {
+            item.menuItems = List.of();
+            return;
+        }
+        long startedAt = System.nanoTime();
+        item.menuItems = openAIService.analyzeMenuItems(item.menuLines);
+        item.llmMillis = (System.nanoTime() - startedAt) / 1_000_000;
+    }
+
+    /**
+     * 한 단계의 작업 스레드를 시작합니다.
+     *
+     * 각 스레드는 입력 큐에서 항목을 꺼내 처리한 뒤 출력 큐에 넣습니다. 출력 큐가 가득 차면
+     * 대기하므로 뒤 단계의 처리 속도가 앞 단계로 전달됩니다. 앞 단계에서 실패한 항목은
+     * 처리하지 않고 그대로 넘깁니다. 종료 표식을 받으면 다른 스레드도 볼 수 있게 다시 넣고,
+     * 마지막으로 끝나는 스레드가 다음 단계에 종료 표식을 전달합니다.
+     * 처리 중 Error가 나도 해당 항목만 실패로 넘기므로, 모든 항목이 결과 파일에 한 줄씩 기록됩니다.
+     */
+    private List<Thread> startStage(String stage, int concurrency, BlockingQueue<BatchItem> input,
+                                    BlockingQueue<BatchItem> output, StageHandler handler) {
+        AtomicInteger running = new AtomicInteger(concurrency);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < concurrency; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (true) {
+                        BatchItem item = input.take();
+                        if (item == END) {
+                            input.put(END);
+                            break;
+                        }
+                        if (item.error == null) {
+                            try {
+                                handler.handle(item);
+                            } catch (Throwable e) {
+                                // Error(OutOfMemoryError 등)도 이 항목의 실패로 기록하고 다음 항목을 계속 처리합니다.
+                                if (e instanceof Error) {
+                                    log.atError()
+                                            .addKeyValue("stage", stage)
+                                            .addKeyValue("file", item.relativePath)
+                                            .setCause(e)
+                                            .log("배치 {} 단계 처리 중 오류", stage);
+                                }
+                                item.stage = stage;
+                                item.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                                item.imageBytes = null;
+                            }
+                        }
+                        output.put(item);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        forwardEnd(output);
+                    }
+                }
+            }, "batch-" + stage + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    private static void forwardEnd(BlockingQueue<BatchItem> output) {
+        try {
+            output.put(END);
+        } catch (InterruptedException e) {
+            // 기록 단계가 이미 끝나 작업 스레드를 정리하는 중입니다.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Set<String> loadCheckpoint(Path checkpointPath) throws IOException {
+        Set<String> completed = new HashSet<>();
+        if (Files.exists(checkpointPath)) {
+            try (Stream<String> lines = Files.lines(checkpointPath, StandardCharsets.UTF_8)) {
+                lines.filter(line -> !line.isBlank()).forEach(completed::add);
+            }
+        }
+        return completed;
+    }
+
+    private List<Path> findPendingImages(Path inputPath, Set<String> completed) throws IOException {
+        try (Stream<Path> paths = Files.walk(inputPath)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> IMAGE_EXTENSIONS.contains(extensionOf(path.getFileName().toString())))
+                    .filter(path -> !completed.contains(inputPath.relativize(path).toString()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private double throughput(int count, long startedAt) {
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        return count / Math.max(elapsedSeconds, 0.001);
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase();
+    }
+
+    private static String contentTypeOf(String fileName) {
+        return switch (extensionOf(fileName)) {
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "bmp" -> "image/bmp";
+            case "tif", "tiff" -> "image/tiff";
+            case "webp" -> "image/webp";
+            default -> "image/jpeg";
+        };
+    }
+
+    @FunctionalInterface
+    private interface StageHandler {
+        void handle(BatchItem item) throws Exception;
+    }
+
+    /**
+     * 파이프라인을 따라 전달되는 파일 한 건의 처리 상태
+     */
+    private static class BatchItem {
+        final Path path;
+        final String relativePath;
+        byte[] imageBytes;
+        long size;
+        List<String> extractedTexts;
+        List<String> menuLines;
+        List<String> menuItems;
+        long ocrMillis;
+        long llmMillis;
+        String stage;
+        String error;
+
+        BatchItem(Path path, String relativePath) {
+            this.path = path;
+            this.relativePath = relativePath;
+        }
+
+        Map<String, Object> toResult() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("file", relativePath);
+            if (error != null) {
+                result.put("status", "error");
+                result.put("stage", stage);
+                result.put("error", error);
+                return result;
+            }
+            result.put("status", "ok");
+            result.put("extractedTexts", extractedTexts);
+            result.put("menuLines", menuLines);
+            result.put("menuItems", menuItems);
+            result.put("ocrMillis", ocrMillis);
+            result.put("llmMillis", llmMillis);
+            return result;
+        }
+    }
+}
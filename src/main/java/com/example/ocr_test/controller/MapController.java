@@ -3,13 +3,20 @@ package com.example.ocr_test.controller;
 import com.example.ocr_test.service.GoogleMapsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 지도 위치 선택 컨트롤러
  * 
@@ -18,6 +25,8 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @Controller
 public class MapController {
 
+    // 지연 초기화 프록시를 주입받아 /map 첫 요청 시점에 서비스를 생성합니다.
+    @Lazy
     @Autowired
     private GoogleMapsService googleMapsService;
 
@@ -74,6 +83,25 @@ public class MapController {
         }
     }
 
+    /**
+     * 여러 좌표의 주소를 한 번에 조회합니다.
+     * 
+     * 요청: [{"latitude": 37.5665, "longitude": 126.9780}, ...]
+     * 응답: {"results": [{"latitude", "longitude", "address" 또는 "error"}, ...]} (입력 순서 유지)
+     */
+    @PostMapping("/api/addresses")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getAddresses(@RequestBody List<Map<String, Object>> coordinates) {
+        try {
+            List<Map<String, Object>> results = googleMapsService.getAddressesFromCoordinates(coordinates);
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * 지도 결과 페이지를 표시합니다.
      */
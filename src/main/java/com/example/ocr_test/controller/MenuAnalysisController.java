@@ -1,7 +1,9 @@
 package com.example.ocr_test.controller;
 
 import com.example.ocr_test.service.ClovaOcrService;
+import com.example.ocr_test.service.NearDuplicateImageIndex;
 import com.example.ocr_test.service.OpenAIService;
+import com.example.ocr_test.service.PdfOcrService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -12,6 +14,8 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +34,12 @@ public class MenuAnalysisController {
     @Autowired
     private OpenAIService openAIService;
 
+    @Autowired
+    private PdfOcrService pdfOcrService;
+
+    @Autowired
+    private NearDuplicateImageIndex nearDuplicateImageIndex;
+
     /**
      * 메뉴 분석 페이지를 표시합니다.
      */
@@ -53,24 +63,58 @@ public class MenuAnalysisController {
         }
 
         String contentType = imageFile.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            redirectAttributes.addFlashAttribute("error", "이미지 파일만 업로드 가능합니다.");
+        boolean pdf = PdfOcrService.isPdf(imageFile);
+        if (!pdf && (contentType == null || !contentType.startsWith("image/"))) {
+            redirectAttributes.addFlashAttribute("error", "이미지 또는 PDF 파일만 업로드 가능합니다.");
             return "redirect:/menu-analysis";
         }
 
         try {
             // 1단계: OCR로 텍스트 추출
-            Map<String, Object> ocrResult = clovaOcrService.extractTextFromImage(imageFile);
+            // - PDF는 페이지별 병렬 OCR 후 페이지 순서대로 합침
+            // - 이미지는 최근에 처리한 같은 이미지(SHA-256 일치)가 있으면 OCR 결과를 재사용
+            // - 유사 이미지는 OCR을 다시 하고, 추출한 텍스트가 같을 때만 메뉴 분석 결과를 이어받음
+            Map<String, Object> ocrResult;
+            NearDuplicateImageIndex.Entry entry = null;
+            if (pdf) {
+                ocrResult = extractTextFromPdf(imageFile);
+            } else {
+                byte[] imageBytes = imageFile.getBytes();
+                String sha256 = NearDuplicateImageIndex.sha256(imageBytes);
+                entry = nearDuplicateImageIndex.findExact(sha256);
+
+                if (entry != null) {
+                    ocrResult = entry.getOcrResult();
+                } else {
+                    NearDuplicateImageIndex.ImageFingerprint fingerprint = nearDuplicateImageIndex.fingerprint(imageBytes);
+                    NearDuplicateImageIndex.Entry similar = nearDuplicateImageIndex.findMatch(fingerprint);
+                    ocrResult = clovaOcrService.extractTextFromImage(imageFile);
+                    entry = nearDuplicateImageIndex.store(fingerprint, ocrResult, sha256);
+                    if (entry != null && similar != null && similar.getMenuItems() != null && similar.hasSameText(ocrResult)) {
+                        entry.setMenuItems(similar.getMenuItems());
+                    }
+                }
+            }
             @SuppressWarnings("unchecked")
             List<String> extractedTexts = (List<String>) ocrResult.get("extractedTexts");
+            // 메뉴 분석에는 필드를 메뉴판 행 단위로 묶은 텍스트를 넘겨 프롬프트를 줄입니다.
+            @SuppressWarnings("unchecked")
+            List<String> menuLines = (List<String>) ocrResult.getOrDefault("menuLines", extractedTexts);
             
             if (extractedTexts.isEmpty()) {
                 model.addAttribute("error", "이미지에서 텍스트를 찾을 수 없습니다. 더 선명한 이미지를 업로드해주세요.");
                 return "menu-analysis";
             }
 
-            // 2단계: OpenAI로 메뉴 분석
-            List<String> menuItems = openAIService.analyzeMenuItems(extractedTexts);
+            // 2단계: OpenAI로 메뉴 분석 (같은 메뉴판의 분석 결과가 있으면 재사용)
+            List<String> menuItems = entry != null ? entry.getMenuItems() : null;
+            boolean reused = menuItems != null;
+            if (menuItems == null) {
+                menuItems = openAIService.analyzeMenuItems(menuLines);
+                if (entry != null) {
+                    entry.setMenuItems(menuItems);
+                }
+            }
             
             // 결과 모델에 추가
             model.addAttribute("fileName", imageFile.getOriginalFilename());
@@ -82,6 +126,9 @@ public class MenuAnalysisController {
             
             if (menuItems.isEmpty()) {
                 model.addAttribute("message", "메뉴를 찾을 수 없습니다. 다른 이미지를 시도해보세요.");
+            } else if (reused) {
+                model.addAttribute("message", 
+                    String.format("이전에 분석한 같은 메뉴판의 결과를 재사용했습니다. (총 %d개의 메뉴)", menuItems.size()));
             } else {
                 model.addAttribute("message", 
                     String.format("총 %d개의 메뉴를 찾았습니다.", menuItems.size()));
@@ -102,6 +149,16 @@ public class MenuAnalysisController {
         }
     }
 
+    private Map<String, Object> extractTextFromPdf(MultipartFile pdfFile) throws IOException {
+        Path pdfPath = Files.createTempFile("menu-analysis-", ".pdf");
+        try {
+            pdfFile.transferTo(pdfPath);
+            return pdfOcrService.extractText(pdfPath.toFile());
+        } finally {
+            Files.deleteIfExists(pdfPath);
+        }
+    }
+
     /**
      * 파일 크기를 읽기 쉬운 형태로 포맷합니다.
      */
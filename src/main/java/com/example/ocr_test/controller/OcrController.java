@@ -1,9 +1,24 @@
 package com.example.ocr_test.controller;
 
+import com.example.ocr_test.resilience.Deadline;
+import com.example.ocr_test.resilience.DeadlineExceededException;
+import com.example.ocr_test.resilience.UpstreamException;
 import com.example.ocr_test.service.ClovaOcrService;
+import com.example.ocr_test.service.ImageUpload;
+import com.example.ocr_test.service.NearDuplicateImageIndex;
+import com.example.ocr_test.service.PdfOcrService;
+import com.example.ocr_test.service.UploadRejectedException;
+import com.example.ocr_test.trace.Trace;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -12,25 +27,73 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Controller
 public class OcrController {
 
+    private static final Logger log = LoggerFactory.getLogger(OcrController.class);
+
     @Autowired
     private ClovaOcrService clovaOcrService;
     
+    @Autowired
+    private PdfOcrService pdfOcrService;
+
+    @Autowired
+    private NearDuplicateImageIndex nearDuplicateImageIndex;
+    
     // 임시 이미지 저장소 (실제 운영에서는 파일 시스템이나 클라우드 스토리지 사용)
     private final Map<String, byte[]> imageStorage = new ConcurrentHashMap<>();
 
+    // 업로드된 PDF 임시 파일 (페이지 이미지는 요청 시 렌더링하여 메모리에 쌓지 않음)
+    // 스트리밍이 끝나고 pdf.page-retention-ms가 지나면 파일을 지우고 항목을 뺍니다.
+    private final Map<String, Path> pdfStorage = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService pdfCleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pdf-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 스트리밍이 끝난 뒤 페이지 이미지(/pdf/{pdfId}/page/{n})를 제공할 시간
+     */
+    @Value("${pdf.page-retention-ms:60000}")
+    private long pdfPageRetentionMillis;
+
+    /**
+     * 스트리밍 업로드(/api/ocr/stream)의 최대 크기 (multipart 업로드 제한과 같게 맞춥니다)
+     */
+    @Value("${ocr.stream.max-bytes:10485760}")
+    private long streamMaxBytes;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     @GetMapping("/")
     public String index() {
         return "index";
@@ -47,49 +110,39 @@ public class OcrController {
             return "redirect:/";
         }
 
-        // 이미지 파일 형식 확인
+        // 이미지 파일 형식 확인 (PDF는 /upload-pdf 스트리밍 경로로 처리)
         String contentType = imageFile.getContentType();
         if (contentType == null || !contentType.startsWith("image/")) {
-            redirectAttributes.addFlashAttribute("error", "이미지 파일만 업로드 가능합니다.");
+            redirectAttributes.addFlashAttribute("error", PdfOcrService.isPdf(imageFile)
+                    ? "PDF 파일은 페이지별 스트리밍 처리를 지원하는 브라우저에서 업로드해주세요."
+                    : "이미지 또는 PDF 파일만 업로드 가능합니다.");
             return "redirect:/";
         }
 
         try {
-            // OCR 서비스 호출
-            Map<String, Object> ocrResult = clovaOcrService.extractTextFromImage(imageFile);
+            // 최근에 처리한 같은 이미지(SHA-256 일치)가 있으면 OCR 결과를 재사용하고, 없으면 OCR 서비스 호출
+            // 유사 이미지는 가격 한 글자만 달라도 구분할 수 없으므로 OCR 결과를 재사용하지 않습니다.
+            byte[] imageBytes = imageFile.getBytes();
+            String sha256 = NearDuplicateImageIndex.sha256(imageBytes);
+            NearDuplicateImageIndex.Entry duplicate = nearDuplicateImageIndex.findExact(sha256);
+
+            Map<String, Object> ocrResult;
+            if (duplicate != null) {
+                ocrResult = duplicate.getOcrResult();
+            } else {
+                ocrResult = clovaOcrService.extractTextFromImage(imageBytes, imageFile.getOriginalFilename(), contentType);
+                nearDuplicateImageIndex.store(nearDuplicateImageIndex.fingerprint(imageBytes), ocrResult, sha256);
+            }
             @SuppressWarnings("unchecked")
             List<String> extractedTexts = (List<String>) ocrResult.get("extractedTexts");
             @SuppressWarnings("unchecked")
             List<Map<String, Object>> textBoxes = (List<Map<String, Object>>) ocrResult.get("textBoxes");
             
-            // 임시 테스트: textBoxes가 비어있으면 더미 데이터 추가
-            System.out.println("DEBUG: textBoxes.isEmpty() = " + textBoxes.isEmpty());
-            System.out.println("DEBUG: extractedTexts.isEmpty() = " + extractedTexts.isEmpty());
-            System.out.println("DEBUG: extractedTexts.size() = " + extractedTexts.size());
-            
-            if (textBoxes.isEmpty() && !extractedTexts.isEmpty()) {
-                System.out.println("DEBUG: 더미 textBoxes 데이터 생성 중...");
-                for (int i = 0; i < extractedTexts.size(); i++) {
-                    Map<String, Object> dummyTextBox = new HashMap<>();
-                    dummyTextBox.put("text", extractedTexts.get(i));
-                    
-                    List<Map<String, Integer>> vertices = new ArrayList<>();
-                    // 더미 좌표 (세로로 배치)
-                    int startY = 50 + (i * 40);
-                    vertices.add(Map.of("x", 50, "y", startY));
-                    vertices.add(Map.of("x", 400, "y", startY));
-                    vertices.add(Map.of("x", 400, "y", startY + 30));
-                    vertices.add(Map.of("x", 50, "y", startY + 30));
-                    
-                    dummyTextBox.put("vertices", vertices);
-                    textBoxes.add(dummyTextBox);
-                }
-                System.out.println("DEBUG: 더미 데이터 생성 완료. textBoxes.size() = " + textBoxes.size());
-            }
-            
+            log.debug("OCR 결과 texts={} textBoxes={} duplicate={}", extractedTexts.size(), textBoxes.size(), duplicate != null);
+
             // 이미지를 임시 저장소에 저장
             String imageId = String.valueOf(System.currentTimeMillis());
-            imageStorage.put(imageId, imageFile.getBytes());
+            imageStorage.put(imageId, imageBytes);
             
             model.addAttribute("fileName", imageFile.getOriginalFilename());
             model.addAttribute("fileSize", formatFileSize(imageFile.getSize()));
@@ -97,10 +150,10 @@ public class OcrController {
             model.addAttribute("textBoxes", textBoxes);
             model.addAttribute("imageId", imageId);
             
-            System.out.println("DEBUG: 모델에 추가된 textBoxes 크기: " + textBoxes.size());
-            
             if (extractedTexts.isEmpty()) {
                 model.addAttribute("message", "이미지에서 텍스트를 찾을 수 없습니다.");
+            } else if (duplicate != null) {
+                model.addAttribute("message", "이전에 처리한 같은 이미지의 결과를 재사용했습니다. (총 " + extractedTexts.size() + "개의 텍스트)");
             } else {
                 model.addAttribute("message", "총 " + extractedTexts.size() + "개의 텍스트를 추출했습니다.");
             }
@@ -120,6 +173,224 @@ public class OcrController {
         }
     }
 
+    /**
+     * PDF 메뉴판을 업로드하고 페이지별 OCR 결과를 완료되는 순서대로 스트리밍합니다.
+     * 
+     * 응답은 한 줄에 JSON 객체 하나씩 담긴 NDJSON 형식입니다.
+     * - 첫 줄: pdfId, fileName
+     * - 페이지 줄: page, width, height, extractedTexts, textBoxes, imageUrl (실패 시 page, error)
+     * - 마지막 줄: done, pageCount (전체 실패 시 error)
+     */
+    @PostMapping("/upload-pdf")
+    public ResponseEntity<StreamingResponseBody> uploadPdf(@RequestParam("imageFile") MultipartFile pdfFile) throws IOException {
+        if (pdfFile.isEmpty() || !PdfOcrService.isPdf(pdfFile)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // 스트리밍은 요청 처리 이후 비동기로 진행되므로 멀티파트 임시 파일 대신 별도 임시 파일로 옮겨둡니다.
+        String pdfId = UUID.randomUUID().toString();
+        Path pdfPath = Files.createTempFile("menu-" + pdfId + "-", ".pdf");
+        try {
+            pdfFile.transferTo(pdfPath);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(pdfPath);
+            throw e;
+        }
+        pdfStorage.put(pdfId, pdfPath);
+
+        String fileName = pdfFile.getOriginalFilename();
+        // 스트리밍은 다른 스레드에서 진행되므로 요청의 추적 컨텍스트와 마감 시각을 넘겨줍니다.
+        // 페이지별 OCR 호출은 요청의 남은 시간 안에서 타임아웃이 정해지고, 마감 시각이 지나면 남은 페이지는 처리하지 않습니다.
+        Trace trace = Trace.current();
+        Deadline deadline = Deadline.current();
+        StreamingResponseBody body = outputStream -> {
+            try (Trace.Scope traceScope = Trace.activate(trace);
+                 Deadline.Scope deadlineScope = Deadline.activate(deadline)) {
+                streamPdfResults(outputStream, pdfId, pdfPath, fileName);
+            } finally {
+                schedulePdfRemoval(pdfId);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 스트리밍이 끝난 PDF의 임시 파일을 지우고 저장소에서 뺍니다.
+     * 마지막으로 전달된 페이지 이미지 요청이 처리될 수 있도록 pdf.page-retention-ms 만큼 기다린 뒤 지웁니다.
+     */
+    private void schedulePdfRemoval(String pdfId) {
+        try {
+            pdfCleaner.schedule(() -> removePdf(pdfId), pdfPageRetentionMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 종료 중이면 바로 지웁니다.
+            removePdf(pdfId);
+        }
+    }
+
+    private void removePdf(String pdfId) {
+        Path pdfPath = pdfStorage.remove(pdfId);
+        if (pdfPath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(pdfPath);
+        } catch (IOException e) {
+            log.warn("PDF 임시 파일 삭제 실패 path={} error={}", pdfPath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void deletePdfs() {
+        pdfCleaner.shutdownNow();
+        List.copyOf(pdfStorage.keySet()).forEach(this::removePdf);
+    }
+
+    private void streamPdfResults(OutputStream outputStream, String pdfId, Path pdfPath, String fileName) throws IOException {
+        writeNdjsonLine(outputStream, Map.of("pdfId", pdfId, "fileName", fileName != null ? fileName : ""));
+        try {
+            int pageCount = pdfOcrService.processPdf(pdfPath.toFile(), pageResult -> {
+                pageResult.put("imageUrl", "/pdf/" + pdfId + "/page/" + pageResult.get("page"));
+                try {
+                    writeNdjsonLine(outputStream, pageResult);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writeNdjsonLine(outputStream, Map.of("done", true, "pageCount", pageCount));
+        } catch (UncheckedIOException e) {
+            // 클라이언트 연결이 끊긴 경우
+            throw e.getCause();
+        } catch (Exception e) {
+            log.warn("PDF 처리 실패 pdfId={} error={}", pdfId, e.getMessage());
+            writeNdjsonLine(outputStream, Map.of("done", true, "error", "PDF 처리 중 오류가 발생했습니다: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 요청 본문으로 받은 이미지(multipart가 아닌 바이너리 그대로)를 받는 대로 OCR합니다.
+     *
+     * multipart 업로드는 본문을 모두 받은 뒤에야 검사, 해시 계산, OCR 호출이 차례로 시작되지만,
+     * 이 경로는 첫 바이트로 형식을 확인한 뒤 받는 대로 클로바 OCR로 흘려 보내므로
+     * 느린 회선에서 큰 사진을 올릴 때 업로드와 OCR 전송이 겹쳐 진행됩니다.
+     * 업로드가 끝나면 같은 이미지(SHA-256), 유사 이미지 순으로 이전 결과를 찾고, 있으면 OCR 요청을 취소합니다.
+     *
+     * 요청: POST /api/ocr/stream?fileName=menu.jpg (Content-Type: image/* 또는 application/octet-stream, 본문은 이미지 바이너리)
+     * 응답: OCR 결과(extractedTexts, textBoxes, menuLines)와 imageId, sha256, reused
+     *       (지원하지 않는 Content-Type이나 형식은 415, 최대 크기 초과는 413, 실패 시 error)
+     *
+     * application/x-www-form-urlencoded 요청에서 파라미터를 읽으면 서블릿 컨테이너가 본문을 폼으로 읽어 버리므로,
+     * Content-Type을 먼저 확인하고 fileName은 @RequestParam 대신 쿼리 문자열에서 직접 읽습니다.
+     */
+    @PostMapping("/api/ocr/stream")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> streamOcr(HttpServletRequest request) {
+        if (!isStreamContentType(request.getContentType())) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(Map.of("error", "Content-Type은 image/* 또는 application/octet-stream 이어야 합니다."));
+        }
+        String fileName = queryParameter(request.getQueryString(), "fileName");
+
+        try {
+            ImageUpload upload = ImageUpload.open(request.getInputStream(), request.getContentLengthLong(), streamMaxBytes);
+            UploadLookup lookup = new UploadLookup();
+            Map<String, Object> ocrResult = new HashMap<>(clovaOcrService.extractTextFromUpload(upload, fileName, lookup));
+            if (!lookup.reused) {
+                nearDuplicateImageIndex.store(lookup.fingerprint, ocrResult, upload.sha256());
+            }
+
+            String imageId = String.valueOf(System.currentTimeMillis());
+            imageStorage.put(imageId, upload.bytes());
+
+            ocrResult.put("imageId", imageId);
+            ocrResult.put("sha256", upload.sha256());
+            ocrResult.put("reused", lookup.reused);
+            return ResponseEntity.ok(ocrResult);
+        } catch (UploadRejectedException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        } catch (DeadlineExceededException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of("error", e.getMessage()));
+        } catch (IOException | UpstreamException e) {
+            log.warn("스트리밍 OCR 실패 error={}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(Map.of("error", "OCR 처리 중 오류가 발생했습니다: " + e.getMessage()));
+        }
+    }
+
+    private static boolean isStreamContentType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.trim().toLowerCase(Locale.ROOT);
+        return type.startsWith("image/") || type.startsWith("application/octet-stream");
+    }
+
+    /**
+     * 쿼리 문자열에서 파라미터 하나를 찾습니다. 없거나 인코딩이 잘못되었으면 null을 반환합니다.
+     */
+    private static String queryParameter(String queryString, String name) {
+        if (queryString == null) {
+            return null;
+        }
+        try {
+            for (String pair : queryString.split("&")) {
+                int separator = pair.indexOf('=');
+                String key = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);
+                if (key.equals(name)) {
+                    return separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * 스트리밍 업로드를 모두 받은 시점에 이전 결과를 찾습니다.
+     * 바이트가 같은 이미지만 디코딩 없이 해시로 찾아 재사용하고, 그 밖에는 색인에 저장할 지문만 계산합니다.
+     */
+    private final class UploadLookup implements Function<ImageUpload, Map<String, Object>> {
+        private NearDuplicateImageIndex.ImageFingerprint fingerprint;
+        private boolean reused;
+
+        @Override
+        public Map<String, Object> apply(ImageUpload upload) {
+            NearDuplicateImageIndex.Entry exact = nearDuplicateImageIndex.findExact(upload.sha256());
+            if (exact != null) {
+                reused = true;
+                return exact.getOcrResult();
+            }
+
+            fingerprint = nearDuplicateImageIndex.fingerprint(upload.bytes());
+            return null;
+        }
+    }
+
+    @GetMapping("/pdf/{pdfId}/page/{pageNumber}")
+    public ResponseEntity<ByteArrayResource> getPdfPage(@PathVariable String pdfId, @PathVariable int pageNumber) {
+        Path pdfPath = pdfStorage.get(pdfId);
+        if (pdfPath == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            byte[] pageImage = pdfOcrService.renderPage(pdfPath.toFile(), pageNumber);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                    .contentType(MediaType.IMAGE_PNG)
+                    .contentLength(pageImage.length)
+                    .body(new ByteArrayResource(pageImage));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/image/{imageId}")
     public ResponseEntity<ByteArrayResource> getImage(@PathVariable String imageId) {
         byte[] imageData = imageStorage.get(imageId);
@@ -136,6 +407,12 @@ public class OcrController {
                 .body(resource);
     }
 
+    private void writeNdjsonLine(OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(value));
+        outputStream.write('\n');
+        outputStream.flush();
+    }
+
     private String formatFileSize(long size) {
         if (size < 1024) {
             return size + " bytes";
@@ -0,0 +1,51 @@
+package com.example.ocr_test.controller;
+
+import com.example.ocr_test.service.ClovaOcrService;
+import com.example.ocr_test.service.NearDuplicateImageIndex;
+import com.example.ocr_test.service.OpenAIService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 운영 통계 컨트롤러
+ * 
+ * 캐시 적중률 등 서비스 내부 통계를 JSON으로 제공하는 컨트롤러입니다.
+ */
+@Controller
+public class StatsController {
+
+    @Autowired
+    private NearDuplicateImageIndex nearDuplicateImageIndex;
+
+    @Autowired
+    private ClovaOcrService clovaOcrService;
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    /**
+     * 유사 이미지 재사용 통계를 반환합니다.
+     */
+    @GetMapping("/api/stats/near-duplicate")
+    @ResponseBody
+    public Map<String, Object> nearDuplicateStats() {
+        return nearDuplicateImageIndex.getStats();
+    }
+
+    /**
+     * 외부 API 키별 사용 통계를 반환합니다. 키 값과 엔드포인트는 보여주지 않습니다.
+     */
+    @GetMapping("/api/stats/credentials")
+    @ResponseBody
+    public Map<String, Object> credentialStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("clovaOcr", clovaOcrService.getCredentialStats());
+        stats.put("openai", openAIService.getCredentialStats());
+        return stats;
+    }
+}
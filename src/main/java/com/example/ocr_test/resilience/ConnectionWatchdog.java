@@ -0,0 +1,41 @@
+package com.example.ocr_test.resilience;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 외부 API 연결 감시
+ *
+ * HttpURLConnection의 읽기 타임아웃은 read() 한 번마다 적용되므로, 응답을 조금씩 흘려 보내는 서버는
+ * 타임아웃에 걸리지 않은 채 마감 시각을 넘길 수 있습니다. {@link UpstreamCaller}가 마감 시각에
+ * {@link #expire()}를 호출하면 감시 중인 연결을 끊어, 진행 중인 읽기/쓰기가 바로 실패하도록 합니다.
+ */
+public final class ConnectionWatchdog {
+
+    private final List<HttpURLConnection> connections = new ArrayList<>();
+    private boolean expired;
+
+    /**
+     * 연결을 감시 대상에 넣습니다. 이미 마감 시각이 지났으면 연결을 시작하지 않도록 예외를 던집니다.
+     */
+    synchronized void watch(HttpURLConnection connection) {
+        if (expired) {
+            throw new DeadlineExceededException("요청 처리 시간을 초과하여 " + connection.getURL().getHost() + " 호출을 중단했습니다.");
+        }
+        connections.add(connection);
+    }
+
+    /**
+     * 마감 시각이 되어 감시 중인 연결을 모두 끊습니다.
+     */
+    synchronized void expire() {
+        expired = true;
+        connections.forEach(HttpURLConnection::disconnect);
+        connections.clear();
+    }
+
+    public synchronized boolean isExpired() {
+        return expired;
+    }
+}
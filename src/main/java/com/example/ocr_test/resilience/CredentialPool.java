@@ -0,0 +1,299 @@
+package com.example.ocr_test.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 외부 API 인증 키 풀
+ *
+ * 같은 외부 API의 키(와 엔드포인트) 여러 개에 요청을 나눠 보내 키별 호출 한도를 합쳐 씁니다.
+ *
+ * - 진행 중인 요청 수를 가중치로 나눈 값이 가장 작은 키를 고릅니다. (weighted least-loaded)
+ * - 429 응답을 받은 키는 Retry-After 또는 설정한 시간 동안, 401/403 응답을 받은 키는
+ *   {@link #AUTH_COOLDOWN_MILLIS} 동안 쉬게 합니다. 모든 키가 쉬는 중이면 가장 먼저 풀리는 키를 씁니다.
+ * - 키별 요청 수, 실패 수, 쉬는 상태를 통계로 제공합니다.
+ *
+ * 재시도({@link UpstreamCaller})는 시도마다 키를 새로 고르므로, 한도에 걸린 키 대신 다른 키로 다시 보냅니다.
+ */
+public final class CredentialPool {
+
+    private static final Logger log = LoggerFactory.getLogger(CredentialPool.class);
+
+    /**
+     * 인증 오류(401, 403)를 받은 키를 쉬게 할 시간
+     * 폐기된 키일 수 있으므로 길게 쉬게 하되, 일시적인 오류였다면 다시 쓰일 수 있도록 합니다.
+     */
+    static final long AUTH_COOLDOWN_MILLIS = 5 * 60 * 1000;
+
+    private final String name;
+    private final List<Credential> credentials;
+    private final long cooldownMillis;
+
+    private CredentialPool(String name, List<Credential> credentials, long cooldownMillis) {
+        this.name = name;
+        this.credentials = credentials;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    /**
+     * 쉼표로 구분된 설정값으로 키 풀을 만듭니다.
+     *
+     * @param name 외부 API 이름 (로그와 통계에 사용)
+     * @param propertyPrefix 설정 속성 이름 앞부분 (예: clova.ocr, 설정 오류 메시지에 사용)
+     * @param secrets 인증 키 목록
+     * @param endpoints 키별 엔드포인트 목록 (비어 있으면 없음, 하나면 모든 키가 공유, 아니면 키와 같은 순서와 개수)
+     * @param weights 키별 가중치 목록 (비어 있으면 모두 1)
+     * @param cooldownMillis 429 응답을 받은 키를 쉬게 할 기본 시간
+     */
+    public static CredentialPool of(String name, String propertyPrefix, String secrets, String endpoints, String weights,
+                                    long cooldownMillis) {
+        List<String> secretList = splitList(secrets);
+        List<String> endpointList = splitList(endpoints);
+        List<String> weightList = splitList(weights);
+
+        if (endpointList.size() > 1 && endpointList.size() != secretList.size()) {
+            throw new IllegalStateException(name + " 엔드포인트 수(" + endpointList.size()
+                    + ")와 키 수(" + secretList.size() + ")가 다릅니다. application.properties를 확인해주세요.");
+        }
+        if (!weightList.isEmpty() && weightList.size() != secretList.size()) {
+            throw new IllegalStateException(name + " 가중치(" + propertyPrefix + ".key-weights) 수(" + weightList.size()
+                    + ")와 키 수(" + secretList.size() + ")가 다릅니다. application.properties를 확인해주세요.");
+        }
+
+        List<Credential> credentials = new ArrayList<>();
+        for (int i = 0; i < secretList.size(); i++) {
+            String endpoint = endpointList.isEmpty() ? null : endpointList.get(endpointList.size() == 1 ? 0 : i);
+            int weight = weightList.isEmpty() ? 1 : parseWeight(name, propertyPrefix, weightList.get(i));
+            credentials.add(new Credential(name + "-" + (i + 1), secretList.get(i), endpoint, weight));
+        }
+        return new CredentialPool(name, List.copyOf(credentials), cooldownMillis);
+    }
+
+    private static int parseWeight(String name, String propertyPrefix, String value) {
+        int weight;
+        try {
+            weight = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            weight = 0;
+        }
+        if (weight <= 0) {
+            throw new IllegalStateException(name + " 가중치(" + propertyPrefix + ".key-weights)는 1 이상의 정수여야 합니다: "
+                    + value + ". application.properties를 확인해주세요.");
+        }
+        return weight;
+    }
+
+    private static List<String> splitList(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .toList();
+    }
+
+    public boolean isEmpty() {
+        return credentials.isEmpty();
+    }
+
+    public int size() {
+        return credentials.size();
+    }
+
+    /**
+     * 이 응답 상태로 실패한 요청을 다시 보내도 되는지 판단합니다.
+     * 인증 오류는 해당 키만의 문제일 수 있으므로 다른 키가 있으면 다시 보냅니다.
+     */
+    public boolean isRetryable(int statusCode) {
+        return UpstreamException.isRetryableStatus(statusCode)
+                || ((statusCode == 401 || statusCode == 403) && credentials.size() > 1);
+    }
+
+    /**
+     * 이번 요청에 쓸 키를 고릅니다. 반환된 Lease는 요청이 끝나면 닫아야 합니다.
+     */
+    public synchronized Lease acquire() {
+        if (credentials.isEmpty()) {
+            throw new IllegalStateException(name + " 인증 키가 설정되지 않았습니다. application.properties를 확인해주세요.");
+        }
+
+        long now = System.nanoTime();
+        Credential selected = null;
+        for (Credential credential : credentials) {
+            if (credential.isCoolingDown(now)) {
+                continue;
+            }
+            if (selected == null || credential.loadScore() < selected.loadScore()
+                    || (credential.loadScore() == selected.loadScore() && credential.usageScore() < selected.usageScore())) {
+                selected = credential;
+            }
+        }
+
+        if (selected == null) {
+            // 모든 키가 쉬는 중이면 가장 먼저 풀리는 키를 씁니다.
+            for (Credential credential : credentials) {
+                if (selected == null || credential.cooldownUntilNanos < selected.cooldownUntilNanos) {
+                    selected = credential;
+                }
+            }
+        }
+
+        selected.inFlight++;
+        selected.requests.incrementAndGet();
+        return new Lease(selected);
+    }
+
+    private synchronized void release(Credential credential) {
+        credential.inFlight--;
+    }
+
+    /**
+     * 키별 사용 통계를 반환합니다.
+     * 키 값과 엔드포인트(URL에 계정 정보가 들어 있음)는 내보내지 않고, 설정 순서로 붙인 이름(예: clova-ocr-1)으로만 구분합니다.
+     */
+    public synchronized List<Map<String, Object>> getStats() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Credential credential : credentials) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", credential.id);
+            entry.put("weight", credential.weight);
+            entry.put("inFlight", credential.inFlight);
+            entry.put("requests", credential.requests.get());
+            entry.put("failures", credential.failures.get());
+            entry.put("throttled", credential.throttled.get());
+            entry.put("authFailures", credential.authFailures.get());
+            entry.put("coolingDown", credential.isCoolingDown(now));
+            entry.put("cooldownRemainingMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(credential.cooldownUntilNanos - now)));
+            stats.add(entry);
+        }
+        return stats;
+    }
+
+    /**
+     * Retry-After 헤더(초 단위)를 밀리초로 바꿉니다. 없거나 해석할 수 없으면 0을 반환합니다.
+     */
+    static long parseRetryAfterMillis(String retryAfter) {
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 풀에 등록된 키 하나
+     */
+    private static final class Credential {
+        private final String id;
+        private final String secret;
+        private final String endpoint;
+        private final int weight;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong throttled = new AtomicLong();
+        private final AtomicLong authFailures = new AtomicLong();
+        private int inFlight;
+        private volatile long cooldownUntilNanos;
+
+        Credential(String id, String secret, String endpoint, int weight) {
+            this.id = id;
+            this.secret = secret;
+            this.endpoint = endpoint;
+            this.weight = weight;
+            this.cooldownUntilNanos = System.nanoTime();
+        }
+
+        boolean isCoolingDown(long now) {
+            return cooldownUntilNanos - now > 0;
+        }
+
+        double loadScore() {
+            return (double) inFlight / weight;
+        }
+
+        double usageScore() {
+            return (double) requests.get() / weight;
+        }
+    }
+
+    /**
+     * 요청 하나에 빌려준 키. 응답 상태를 기록하고, 요청이 끝나면 닫습니다.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Credential credential;
+        private boolean released;
+
+        private Lease(Credential credential) {
+            this.credential = credential;
+        }
+
+        public String secret() {
+            return credential.secret;
+        }
+
+        /**
+         * 키와 짝지어진 엔드포인트 (설정하지 않았으면 null)
+         */
+        public String endpoint() {
+            return credential.endpoint;
+        }
+
+        public String id() {
+            return credential.id;
+        }
+
+        /**
+         * 응답 상태를 기록합니다. 429는 한도 초과로, 401/403은 인증 오류로 보고 키를 쉬게 합니다.
+         *
+         * @param statusCode HTTP 응답 상태 코드
+         * @param retryAfter Retry-After 응답 헤더 (없으면 null)
+         */
+        public void recordResponse(int statusCode, String retryAfter) {
+            if (statusCode >= 200 && statusCode < 300) {
+                return;
+            }
+            credential.failures.incrementAndGet();
+
+            long cooldown;
+            if (statusCode == 429) {
+                credential.throttled.incrementAndGet();
+                long retryAfterMillis = parseRetryAfterMillis(retryAfter);
+                cooldown = retryAfterMillis > 0 ? retryAfterMillis : cooldownMillis;
+            } else if (statusCode == 401 || statusCode == 403) {
+                credential.authFailures.incrementAndGet();
+                cooldown = AUTH_COOLDOWN_MILLIS;
+            } else {
+                return;
+            }
+
+            credential.cooldownUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cooldown);
+            log.atWarn()
+                    .addKeyValue("upstream", name)
+                    .addKeyValue("credential", credential.id)
+                    .addKeyValue("status", statusCode)
+                    .addKeyValue("cooldownMs", cooldown)
+                    .log("{} 키 {} 일시 제외", name, credential.id);
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(credential);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.ocr_test.resilience;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 처리 마감 시각
+ *
+ * 요청마다 전체 시간 예산으로 마감 시각을 정해 현재 스레드에 활성화하고,
+ * OCR, LLM, 지오코딩 같은 외부 호출 단계가 남은 시간 안에서 타임아웃과 재시도 여부를 정하도록 합니다.
+ * 다른 스레드로 작업을 넘길 때는 {@link #wrap(Callable)}으로 마감 시각을 함께 전달합니다.
+ *
+ * 활성화된 마감 시각이 없으면(배치 등) 각 호출은 기본 타임아웃만 적용받습니다.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    private static final Scope NOOP_SCOPE = () -> { };
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * 지금부터 주어진 시간 뒤를 마감 시각으로 합니다.
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+    }
+
+    /**
+     * 현재 스레드에 활성화된 마감 시각을 반환합니다. 없으면 null을 반환합니다.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 남은 시간 중 주어진 비율만큼을 하위 단계의 마감 시각으로 나눠 줍니다.
+     * 예를 들어 OCR 단계에 0.6을 주면 나머지 40%는 뒤따르는 메뉴 분석 단계 몫으로 남습니다.
+     */
+    public Deadline share(double ratio) {
+        if (ratio >= 1.0) {
+            return this;
+        }
+        long remainingNanos = Math.max(0, expiresAtNanos - System.nanoTime());
+        return new Deadline(System.nanoTime() + (long) (remainingNanos * Math.max(0, ratio)));
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 마감 시각을 현재 스레드에 활성화합니다. deadline이 null이면 아무 일도 하지 않습니다.
+     * 반환된 Scope를 닫으면 이전 상태로 돌아갑니다.
+     */
+    public static Scope activate(Deadline deadline) {
+        if (deadline == null) {
+            return NOOP_SCOPE;
+        }
+
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 현재 마감 시각을 다른 스레드에서 실행될 작업에 전달합니다.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Deadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope scope = activate(deadline)) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * 현재 마감 시각을 다른 스레드에서 실행될 작업에 전달합니다.
+     */
+    public static Runnable wrap(Runnable task) {
+        Deadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope scope = activate(deadline)) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 활성화 범위. 닫으면 이전 마감 시각으로 돌아갑니다.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
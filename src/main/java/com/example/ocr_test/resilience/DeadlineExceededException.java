@@ -0,0 +1,11 @@
+package com.example.ocr_test.resilience;
+
+/**
+ * 요청 처리 시간 예산을 모두 써서 외부 호출을 시작하지 못했거나, 마감 시각까지 응답이 끝나지 않아 연결을 끊은 경우
+ */
+public class DeadlineExceededException extends UpstreamException {
+
+    public DeadlineExceededException(String message) {
+        super(message, 0, false, null);
+    }
+}
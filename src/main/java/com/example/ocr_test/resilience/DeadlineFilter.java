@@ -0,0 +1,59 @@
+package com.example.ocr_test.resilience;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 요청 마감 시각 필터
+ *
+ * 들어오는 요청마다 전체 시간 예산(deadline.request-budget-ms)으로 마감 시각을 정해
+ * 요청 처리 스레드에 활성화합니다. 클라이언트가 X-Request-Timeout-Ms 헤더로
+ * 더 짧은 예산을 보내면 그 값을 사용합니다.
+ */
+@Component
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    /**
+     * 요청 하나에 주어지는 전체 시간 예산 (0이면 사용하지 않음)
+     */
+    @Value("${deadline.request-budget-ms:45000}")
+    private long requestBudgetMillis;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long budgetMillis = resolveBudget(request.getHeader(TIMEOUT_HEADER));
+        if (budgetMillis <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try (Deadline.Scope scope = Deadline.activate(Deadline.after(budgetMillis))) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private long resolveBudget(String requestedTimeout) {
+        if (requestedTimeout == null) {
+            return requestBudgetMillis;
+        }
+        try {
+            long requested = Long.parseLong(requestedTimeout.trim());
+            if (requested > 0 && (requestBudgetMillis <= 0 || requested < requestBudgetMillis)) {
+                return requested;
+            }
+        } catch (NumberFormatException e) {
+            // 형식이 올바르지 않으면 기본 예산을 사용합니다.
+        }
+        return requestBudgetMillis;
+    }
+}
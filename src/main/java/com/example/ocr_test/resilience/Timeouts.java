@@ -0,0 +1,27 @@
+package com.example.ocr_test.resilience;
+
+import java.net.HttpURLConnection;
+
+/**
+ * 외부 API 호출 한 번에 적용할 연결/읽기 타임아웃 (밀리초)
+ *
+ * @param watchdog 마감 시각에 연결을 끊을 감시 (마감 시각이 없는 호출이면 null)
+ */
+public record Timeouts(int connectMillis, int readMillis, ConnectionWatchdog watchdog) {
+
+    public Timeouts(int connectMillis, int readMillis) {
+        this(connectMillis, readMillis, null);
+    }
+
+    /**
+     * 연결에 타임아웃을 설정하고, 마감 시각이 있으면 감시 대상에 넣습니다.
+     * HttpURLConnection은 0을 무제한으로 취급하므로 최소 1ms를 설정합니다.
+     */
+    public void applyTo(HttpURLConnection connection) {
+        connection.setConnectTimeout(Math.max(1, connectMillis));
+        connection.setReadTimeout(Math.max(1, readMillis));
+        if (watchdog != null) {
+            watchdog.watch(connection);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.ocr_test.resilience;
+
+import com.example.ocr_test.trace.LogSanitizer;
+import com.example.ocr_test.trace.Trace;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 외부 API 호출 실행기
+ *
+ * 현재 요청의 마감 시각({@link Deadline})에서 단계별 몫을 나눠 연결/읽기 타임아웃을 정하고,
+ * 일시적인 실패(I/O 오류, 429, 5xx)는 남은 시간 안에서만 지터를 준 지수 백오프로 다시 시도합니다.
+ * OCR, 메뉴 분석, 주소 조회는 같은 입력에 대해 같은 결과를 돌려주므로 다시 보내도 안전합니다.
+ *
+ * 읽기 타임아웃은 read() 한 번마다 적용되므로, 마감 시각이 있는 호출은 {@link ConnectionWatchdog}로
+ * 마감 시각에 연결을 끊어 응답을 조금씩 흘려 보내는 서버도 남은 시간 안에서 끝나도록 합니다.
+ *
+ * hedgeAfterMillis를 주면 첫 요청이 그 시간 안에 응답하지 않을 때 같은 요청을 하나 더 보내
+ * 먼저 성공한 응답을 사용합니다. 늦은 쪽 요청은 읽기 타임아웃이 지나면 정리됩니다.
+ */
+@Component
+public class UpstreamCaller {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamCaller.class);
+
+    /**
+     * 남은 시간이 이보다 짧으면 새 요청을 시작하지 않습니다.
+     */
+    private static final long MIN_ATTEMPT_MILLIS = 200;
+
+    @Value("${upstream.connect-timeout-ms:3000}")
+    private int connectTimeoutMillis;
+
+    /**
+     * 한 번의 요청에 허용하는 최대 읽기 대기 시간
+     * 마감 시각이 없는 호출(배치, PDF 스트리밍)은 이 값이 그대로 적용됩니다.
+     */
+    @Value("${upstream.read-timeout-ms:30000}")
+    private int readTimeoutMillis;
+
+    /**
+     * 최초 요청을 포함한 최대 시도 횟수
+     */
+    @Value("${upstream.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${upstream.backoff-initial-ms:200}")
+    private long backoffInitialMillis;
+
+    @Value("${upstream.backoff-max-ms:2000}")
+    private long backoffMaxMillis;
+
+    private ExecutorService hedgeExecutor;
+
+    private ScheduledExecutorService watchdogScheduler;
+
+    @PostConstruct
+    void init() {
+        hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "upstream-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdogScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upstream-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hedgeExecutor.shutdownNow();
+        watchdogScheduler.shutdownNow();
+    }
+
+    /**
+     * 외부 API를 호출합니다.
+     *
+     * @param name 호출 이름 (로그와 오류 메시지에 사용)
+     * @param budgetShare 요청의 남은 시간 중 이 호출 단계에 줄 비율 (0.0 ~ 1.0)
+     * @param attempt 주어진 타임아웃으로 한 번 호출하는 작업
+     */
+    public <T> T call(String name, double budgetShare, Attempt<T> attempt) throws IOException {
+        return call(name, budgetShare, 0, attempt);
+    }
+
+    /**
+     * 외부 API를 호출하며, 첫 요청이 hedgeAfterMillis 안에 응답하지 않으면 보조 요청을 보냅니다.
+     *
+     * @param hedgeAfterMillis 보조 요청을 보내기까지 기다릴 시간 (0이면 보내지 않음)
+     */
+    public <T> T call(String name, double budgetShare, long hedgeAfterMillis, Attempt<T> attempt) throws IOException {
+        Deadline requestDeadline = Deadline.current();
+        Deadline stageDeadline = requestDeadline != null ? requestDeadline.share(budgetShare) : null;
+
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                if (hedgeAfterMillis > 0) {
+                    return callHedged(name, hedgeAfterMillis, stageDeadline, attempt);
+                }
+                return runAttempt(name, attempt, timeoutsFor(name, stageDeadline), stageDeadline);
+            } catch (DeadlineExceededException e) {
+                throw e;
+            } catch (IOException | UpstreamException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                boolean retryable = !(e instanceof UpstreamException upstream) || upstream.isRetryable();
+                long backoffMillis = backoffMillis(attemptNumber);
+                if (!retryable || attemptNumber >= maxAttempts || !hasTimeFor(stageDeadline, backoffMillis)) {
+                    throw failure(name, e);
+                }
+
+                log.atInfo()
+                        .addKeyValue("upstream", name)
+                        .addKeyValue("attempt", attemptNumber)
+                        .addKeyValue("backoffMs", backoffMillis)
+                        .addKeyValue("error", LogSanitizer.truncate(e.getMessage(), 200))
+                        .log("{} 호출 재시도 ({}회 실패)", name, attemptNumber);
+                sleep(name, backoffMillis);
+            }
+        }
+    }
+
+    private <T> T callHedged(String name, long hedgeAfterMillis, Deadline stageDeadline, Attempt<T> attempt) throws IOException {
+        Timeouts timeouts = timeoutsFor(name, stageDeadline);
+        if (stageDeadline != null && stageDeadline.remainingMillis() <= hedgeAfterMillis + MIN_ATTEMPT_MILLIS) {
+            // 보조 요청을 보낼 시간이 없으면 한 번만 보냅니다.
+            return runAttempt(name, attempt, timeouts, stageDeadline);
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<T>> futures = new ArrayList<>(2);
+        futures.add(completion.submit(Trace.wrap(() -> runAttempt(name, attempt, timeouts, stageDeadline))));
+        try {
+            Future<T> first = completion.poll(hedgeAfterMillis, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                Timeouts hedgeTimeouts = timeoutsFor(name, stageDeadline);
+                log.atInfo()
+                        .addKeyValue("upstream", name)
+                        .addKeyValue("hedgeAfterMs", hedgeAfterMillis)
+                        .log("{} 응답 지연, 보조 요청 전송", name);
+                futures.add(completion.submit(Trace.wrap(() -> runAttempt(name, attempt, hedgeTimeouts, stageDeadline))));
+            }
+
+            // 먼저 성공한 응답을 사용하고, 모두 실패하면 첫 번째 실패를 던집니다.
+            Throwable firstFailure = null;
+            for (int received = 0; received < futures.size(); received++) {
+                Future<T> done = received == 0 && first != null ? first : completion.take();
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    if (firstFailure == null) {
+                        firstFailure = e.getCause();
+                    }
+                }
+            }
+            throw rethrow(firstFailure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(name + " 호출이 중단되었습니다.");
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * 요청을 한 번 보냅니다. 마감 시각이 있으면 그때까지 끝나지 않은 연결을 끊고 DeadlineExceededException을 던집니다.
+     */
+    private <T> T runAttempt(String name, Attempt<T> attempt, Timeouts timeouts, Deadline stageDeadline) throws IOException {
+        ConnectionWatchdog watchdog = timeouts.watchdog();
+        if (watchdog == null) {
+            return attempt.call(timeouts);
+        }
+
+        ScheduledFuture<?> timer = watchdogScheduler.schedule(watchdog::expire, stageDeadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        try {
+            return attempt.call(timeouts);
+        } catch (IOException | RuntimeException e) {
+            if (watchdog.isExpired() && !(e instanceof DeadlineExceededException)) {
+                throw new DeadlineExceededException("요청 처리 시간 안에 " + name + " 응답이 끝나지 않아 연결을 끊었습니다.");
+            }
+            throw e;
+        } finally {
+            timer.cancel(false);
+        }
+    }
+
+    /**
+     * 단계의 남은 시간으로 이번 요청의 타임아웃을 정합니다.
+     */
+    private Timeouts timeoutsFor(String name, Deadline stageDeadline) {
+        if (stageDeadline == null) {
+            return new Timeouts(connectTimeoutMillis, readTimeoutMillis);
+        }
+
+        long remainingMillis = stageDeadline.remainingMillis();
+        if (remainingMillis < MIN_ATTEMPT_MILLIS) {
+            throw new DeadlineExceededException("요청 처리 시간을 초과하여 " + name + " 호출을 중단했습니다.");
+        }
+        return new Timeouts((int) Math.min(connectTimeoutMillis, remainingMillis),
+                (int) Math.min(readTimeoutMillis, remainingMillis), new ConnectionWatchdog());
+    }
+
+    private boolean hasTimeFor(Deadline stageDeadline, long backoffMillis) {
+        return stageDeadline == null || stageDeadline.remainingMillis() > backoffMillis + MIN_ATTEMPT_MILLIS;
+    }
+
+    /**
+     * 0 ~ min(최대, 초기값 * 2^(n-1)) 사이의 임의 대기 시간 (full jitter)
+     */
+    private long backoffMillis(int attemptNumber) {
+        long ceiling = Math.min(backoffMaxMillis, backoffInitialMillis << Math.min(attemptNumber - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void sleep(String name, long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(name + " 재시도 대기 중 중단되었습니다.");
+        }
+    }
+
+    /**
+     * 재시도를 마친 실패를 호출한 쪽에 돌려줄 예외로 바꿉니다.
+     * 응답을 받지 못한 I/O 오류(타임아웃 등)는 외부 API 호출 실패로 감쌉니다.
+     */
+    private UpstreamException failure(String name, Exception e) {
+        if (e instanceof UpstreamException upstream) {
+            return upstream;
+        }
+        return new UpstreamException(name + " 호출 실패: " + e.getMessage(), 0, true, e);
+    }
+
+    private IOException rethrow(Throwable failure) throws IOException {
+        if (failure instanceof IOException io) {
+            throw io;
+        }
+        if (failure instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        throw new IOException(failure);
+    }
+
+    /**
+     * 주어진 타임아웃으로 외부 API를 한 번 호출하는 작업
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T call(Timeouts timeouts) throws IOException;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.ocr_test.resilience;
+
+/**
+ * 외부 API 호출 실패
+ *
+ * 응답 상태 코드와 다시 시도해도 되는지를 함께 담아
+ * {@link UpstreamCaller}가 재시도 여부를 판단할 수 있도록 합니다.
+ */
+public class UpstreamException extends RuntimeException {
+
+    private final int statusCode;
+    private final boolean retryable;
+
+    /**
+     * 응답 상태 코드로 재시도 여부를 정합니다. (429, 5xx만 재시도)
+     */
+    public UpstreamException(String message, int statusCode) {
+        this(message, statusCode, isRetryableStatus(statusCode), null);
+    }
+
+    public UpstreamException(String message, int statusCode, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+    }
+
+    public static boolean isRetryableStatus(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * HTTP 응답 상태 코드 (응답을 받지 못한 경우 0)
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -6,8 +6,18 @@
  */
 package com.example.ocr_test.service;
 
+import com.example.ocr_test.resilience.CredentialPool;
+import com.example.ocr_test.resilience.Timeouts;
+import com.example.ocr_test.resilience.UpstreamCaller;
+import com.example.ocr_test.resilience.UpstreamException;
+import com.example.ocr_test.trace.LogSanitizer;
+import com.example.ocr_test.trace.Span;
+import com.example.ocr_test.trace.Trace;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -20,6 +30,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * 클로바 OCR 서비스 클래스
@@ -44,85 +57,307 @@ public class ClovaOcrService {
     @Value("${clova.ocr.secret-key:}")
     private String secretKey;
 
+    /**
+     * 여러 키로 호출 한도를 나눠 쓸 때의 Secret Key 목록 (쉼표로 구분)
+     * 설정하면 clova.ocr.secret-key 대신 사용합니다.
+     */
+    @Value("${clova.ocr.secret-keys:}")
+    private String secretKeys;
+
+    /**
+     * Secret Key와 같은 순서의 API Gateway URL 목록 (쉼표로 구분, 하나면 모든 키가 공유)
+     * 설정하지 않으면 clova.ocr.api-url을 사용합니다.
+     */
+    @Value("${clova.ocr.api-urls:}")
+    private String apiUrls;
+
+    /**
+     * 키별 가중치 목록 (쉼표로 구분, 비우면 모두 1)
+     */
+    @Value("${clova.ocr.key-weights:}")
+    private String keyWeights;
+
+    /**
+     * 429 응답을 받은 키를 쉬게 할 시간 (Retry-After 헤더가 있으면 그 값을 따름)
+     */
+    @Value("${clova.ocr.key-cooldown-ms:30000}")
+    private long keyCooldownMillis;
+
+    /**
+     * 요청의 남은 처리 시간 중 OCR 단계에 줄 비율
+     * 나머지는 뒤따르는 메뉴 분석(LLM) 단계 몫으로 남깁니다.
+     */
+    @Value("${clova.ocr.budget-share:0.6}")
+    private double budgetShare;
+
+    /**
+     * 첫 요청이 이 시간(ms) 안에 응답하지 않으면 같은 요청을 하나 더 보냅니다. (0이면 사용하지 않음)
+     * 응답 시간 분포의 상위 구간(p95 정도)으로 설정하면 추가 요청은 5% 정도로 유지됩니다.
+     */
+    @Value("${clova.ocr.hedge-after-ms:0}")
+    private long hedgeAfterMillis;
+
+    /**
+     * 메뉴 분석에 넘길 행 텍스트(menuLines)에 포함할 최소 인식 신뢰도 (0.0 ~ 1.0)
+     * 화면에 보여주는 extractedTexts, textBoxes에는 영향을 주지 않습니다.
+     */
+    @Value("${clova.ocr.min-confidence:0.5}")
+    private double minConfidence;
+
+    /**
+     * 파일 크기를 모를 때(스트리밍 업로드) 외부 API로 보내는 chunk 크기
+     */
+    private static final int STREAM_CHUNK_BYTES = 64 * 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private UpstreamCaller upstreamCaller;
+
+    private CredentialPool credentials;
+
+    @PostConstruct
+    void initCredentials() {
+        String urls = apiUrls.isBlank() ? apiUrl : apiUrls;
+        String keys = secretKeys.isBlank() ? secretKey : secretKeys;
+        // URL이 없으면 키만으로는 호출할 수 없으므로 빈 풀로 둡니다.
+        credentials = CredentialPool.of("clova-ocr", "clova.ocr", urls.isBlank() ? "" : keys, urls, keyWeights, keyCooldownMillis);
+    }
+
+    /**
+     * 키별 사용 통계를 반환합니다.
+     */
+    public List<Map<String, Object>> getCredentialStats() {
+        return credentials.getStats();
+    }
+
     public Map<String, Object> extractTextFromImage(MultipartFile imageFile) throws IOException {
-        if (apiUrl.isEmpty() || secretKey.isEmpty()) {
+        return extractTextFromImage(imageFile.getBytes(), imageFile.getOriginalFilename(), imageFile.getContentType());
+    }
+
+    /**
+     * 이미지 바이트 배열에서 텍스트를 추출합니다.
+     * PDF 페이지 렌더링 결과처럼 업로드 파일이 아닌 이미지를 OCR할 때 사용합니다.
+     *
+     * @param imageBytes 이미지 바이너리
+     * @param fileName 파일명 (확장자로 이미지 형식을 판단)
+     * @param contentType 이미지 MIME 타입 (없으면 image/jpeg)
+     * @return extractedTexts, textBoxes, menuLines를 담은 OCR 결과
+     */
+    public Map<String, Object> extractTextFromImage(byte[] imageBytes, String fileName, String contentType) throws IOException {
+        if (credentials.isEmpty()) {
+            throw new IllegalStateException("클로바 OCR API URL과 Secret Key가 설정되지 않았습니다. application.properties를 확인해주세요.");
+        }
+
+        String name = upstreamFileName(fileName, getFileExtension(fileName));
+        String message = buildMessage(name, getFileExtension(fileName));
+
+        try (Span span = Trace.span("clova-ocr")) {
+            span.tag("requestBytes", imageBytes.length);
+            try {
+                // 시도마다 키를 새로 골라, 한도에 걸린 키 대신 다른 키로 다시 보냅니다.
+                String response = upstreamCaller.call("clova-ocr", budgetShare, hedgeAfterMillis, timeouts -> {
+                    try (CredentialPool.Lease credential = credentials.acquire()) {
+                        return callOcrApi(message, name, contentType, imageBytes.length, out -> {
+                            out.write(imageBytes);
+                            return true;
+                        }, credential, timeouts, span);
+                    }
+                });
+                return parseOcrResponseWithCoordinates(response);
+            } catch (IOException | RuntimeException e) {
+                span.error(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 클라이언트가 보내는 중인 이미지를 받는 대로 클로바 OCR로 보냅니다.
+     *
+     * 업로드를 모두 받은 뒤 요청을 마무리하기 전에 beforeCommit을 한 번 호출합니다.
+     * beforeCommit이 결과를 돌려주면(같은 이미지를 이미 처리한 경우) OCR 요청을 마무리하지 않고 연결을 끊어
+     * 클로바 쪽에서 처리되지 않도록 하고, 그 결과를 그대로 반환합니다.
+     *
+     * 실패한 요청은 받아 둔 부분부터 다시 보내고 나머지를 이어서 받습니다.
+     * 본문을 한 번만 읽을 수 있으므로 보조 요청(hedge)은 보내지 않습니다.
+     *
+     * @param upload 형식 확인을 마친 업로드 본문
+     * @param fileName 파일명 (없으면 형식으로 정함)
+     * @param beforeCommit 업로드를 모두 받은 뒤 호출할 이전 결과 조회 (없으면 null 반환)
+     * @return extractedTexts, textBoxes, menuLines를 담은 OCR 결과
+     */
+    public Map<String, Object> extractTextFromUpload(ImageUpload upload, String fileName,
+                                                     Function<ImageUpload, Map<String, Object>> beforeCommit) throws IOException {
+        if (credentials.isEmpty()) {
             throw new IllegalStateException("클로바 OCR API URL과 Secret Key가 설정되지 않았습니다. application.properties를 확인해주세요.");
         }
 
+        String extension = upload.format().extension();
+        String name = upstreamFileName(fileName, extension);
+        String message = buildMessage(name, extension);
+        AtomicBoolean checked = new AtomicBoolean();
+        AtomicReference<Map<String, Object>> cached = new AtomicReference<>();
+
+        try (Span span = Trace.span("clova-ocr")) {
+            span.tag("streaming", true);
+            try {
+                String response = upstreamCaller.call("clova-ocr", budgetShare, timeouts -> {
+                    try (CredentialPool.Lease credential = credentials.acquire()) {
+                        return callOcrApi(message, name, upload.format().contentType(), upload.declaredLength(), out -> {
+                            upload.writeTo(out);
+                            if (!checked.getAndSet(true)) {
+                                cached.set(beforeCommit.apply(upload));
+                            }
+                            return cached.get() == null;
+                        }, credential, timeouts, span);
+                    }
+                });
+                span.tag("requestBytes", upload.size());
+                if (response == null) {
+                    span.tag("reused", true);
+                    return cached.get();
+                }
+                return parseOcrResponseWithCoordinates(response);
+            } catch (IOException | RuntimeException e) {
+                span.error(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 외부 API 요청에 넣을 파일명을 만듭니다.
+     *
+     * 클라이언트가 보낸 파일명은 multipart 헤더(filename="...")에 그대로 들어가므로,
+     * 줄바꿈 등 제어 문자와 따옴표, 경로 구분자를 빼서 헤더나 파트를 끼워 넣을 수 없게 합니다.
+     * 남는 글자가 없으면 "upload.확장자"를 씁니다.
+     */
+    static String upstreamFileName(String fileName, String extension) {
+        StringBuilder name = new StringBuilder();
+        if (fileName != null) {
+            for (int i = 0; i < fileName.length(); i++) {
+                char c = fileName.charAt(i);
+                if (!Character.isISOControl(c) && c != '"' && c != '\\' && c != '/'
+                        && Character.getType(c) != Character.LINE_SEPARATOR && Character.getType(c) != Character.PARAGRAPH_SEPARATOR) {
+                    name.append(c);
+                }
+            }
+        }
+        String trimmed = name.toString().trim();
+        return trimmed.isEmpty() ? "upload." + extension : trimmed;
+    }
+
+    /**
+     * 클로바 OCR 요청의 message 파트 JSON을 만듭니다.
+     */
+    private String buildMessage(String fileName, String format) {
+        // 요청 추적 ID를 클로바 requestId로 전달하여 양쪽 로그를 연결할 수 있도록 합니다.
+        String requestId = Trace.currentId() != null ? Trace.currentId() : String.valueOf(System.currentTimeMillis());
+
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("version", "V2");
+        message.put("requestId", requestId);
+        message.put("timestamp", System.currentTimeMillis());
+        ObjectNode image = message.putArray("images").addObject();
+        image.put("format", format);
+        image.put("name", fileName);
+        return message.toString();
+    }
+
+    /**
+     * 클로바 OCR API에 multipart 요청을 보내고 응답 본문을 반환합니다.
+     *
+     * 본문은 연결에 바로 흘려 보냅니다. (HttpURLConnection은 기본적으로 본문 전체를 메모리에 모은 뒤 보냅니다.)
+     * 파일 크기를 알면 Content-Length를, 모르면 chunked 전송을 사용합니다.
+     *
+     * @param fileLength 파일 바이너리 크기 (모르면 -1)
+     * @return 응답 본문, file이 요청을 취소했으면 null
+     */
+    private String callOcrApi(String message, String fileName, String contentType, long fileLength, FileBody file,
+                              CredentialPool.Lease credential, Timeouts timeouts, Span span) throws IOException {
         String boundary = "----WebKitFormBoundary" + System.currentTimeMillis();
         String LINE_FEED = "\r\n";
-        
-        // 메시지 JSON 생성
-        String message = String.format("""
-            {
-                "version": "V2",
-                "requestId": "%s",
-                "timestamp": %d,
-                "images": [
-                    {
-                        "format": "%s",
-                        "name": "%s"
-                    }
-                ]
-            }""", 
-            System.currentTimeMillis(),
-            System.currentTimeMillis(),
-            getFileExtension(imageFile.getOriginalFilename()),
-            imageFile.getOriginalFilename()
-        );
-
-        URL url = new URL(apiUrl);
+
+        StringBuilder head = new StringBuilder();
+        // message 파트
+        head.append("--").append(boundary).append(LINE_FEED);
+        head.append("Content-Disposition: form-data; name=\"message\"").append(LINE_FEED);
+        head.append("Content-Type: text/plain; charset=UTF-8").append(LINE_FEED);
+        head.append(LINE_FEED);
+        head.append(message).append(LINE_FEED);
+        // file 파트 헤더
+        head.append("--").append(boundary).append(LINE_FEED);
+        head.append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(fileName).append("\"").append(LINE_FEED);
+        head.append("Content-Type: ").append(contentType != null ? contentType : "image/jpeg").append(LINE_FEED);
+        head.append(LINE_FEED);
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.UTF_8);
+        // 마지막 바운더리
+        byte[] tailBytes = (LINE_FEED + "--" + boundary + "--" + LINE_FEED).getBytes(StandardCharsets.UTF_8);
+
+        URL url = new URL(credential.endpoint());
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        timeouts.applyTo(connection);
         connection.setDoOutput(true);
         connection.setRequestMethod("POST");
         connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-        connection.setRequestProperty("X-OCR-SECRET", secretKey);
-
-        try (OutputStream outputStream = connection.getOutputStream()) {
-            
-            // message 파트 추가
-            outputStream.write(("--" + boundary + LINE_FEED).getBytes(StandardCharsets.UTF_8));
-            outputStream.write(("Content-Disposition: form-data; name=\"message\"" + LINE_FEED).getBytes(StandardCharsets.UTF_8));
-            outputStream.write(("Content-Type: text/plain; charset=UTF-8" + LINE_FEED).getBytes(StandardCharsets.UTF_8));
-            outputStream.write(LINE_FEED.getBytes(StandardCharsets.UTF_8));
-            outputStream.write(message.getBytes(StandardCharsets.UTF_8));
-            outputStream.write(LINE_FEED.getBytes(StandardCharsets.UTF_8));
-
-            // file 파트 추가
-            outputStream.write(("--" + boundary + LINE_FEED).getBytes(StandardCharsets.UTF_8));
-            outputStream.write(("Content-Disposition: form-data; name=\"file\"; filename=\"" + 
-                               imageFile.getOriginalFilename() + "\"" + LINE_FEED).getBytes(StandardCharsets.UTF_8));
-            outputStream.write(("Content-Type: " + (imageFile.getContentType() != null ? 
-                               imageFile.getContentType() : "image/jpeg") + LINE_FEED).getBytes(StandardCharsets.UTF_8));
-            outputStream.write(LINE_FEED.getBytes(StandardCharsets.UTF_8));
-            
-            // 파일 바이너리 데이터 쓰기
-            outputStream.write(imageFile.getBytes());
-            
-            // 마지막 바운더리
-            outputStream.write(LINE_FEED.getBytes(StandardCharsets.UTF_8));
-            outputStream.write(("--" + boundary + "--" + LINE_FEED).getBytes(StandardCharsets.UTF_8));
-            outputStream.flush();
+        connection.setRequestProperty("X-OCR-SECRET", credential.secret());
+        if (fileLength >= 0) {
+            connection.setFixedLengthStreamingMode(headBytes.length + fileLength + tailBytes.length);
+        } else {
+            connection.setChunkedStreamingMode(STREAM_CHUNK_BYTES);
         }
 
+        // 본문을 끝까지 쓰지 않고 닫으면 요청이 마무리되므로, 취소하거나 실패하면 닫지 않고 연결을 끊습니다.
+        OutputStream outputStream = connection.getOutputStream();
+        try {
+            outputStream.write(headBytes);
+            if (!file.writeTo(outputStream)) {
+                connection.disconnect();
+                return null;
+            }
+            outputStream.write(tailBytes);
+        } catch (IOException | RuntimeException e) {
+            connection.disconnect();
+            throw e;
+        }
+        outputStream.close();
+
         // 응답 읽기
         int responseCode = connection.getResponseCode();
+        credential.recordResponse(responseCode, connection.getHeaderField("Retry-After"));
         InputStream inputStream = (responseCode >= 200 && responseCode < 300) ? 
                                  connection.getInputStream() : connection.getErrorStream();
         
+        // 오류 응답에 본문이 없으면 getErrorStream()은 null을 반환합니다.
         StringBuilder response = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+        if (inputStream != null) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    response.append(line);
+                }
             }
         }
 
+        span.tag("status", responseCode).tag("responseBytes", response.length()).tag("credential", credential.id());
         if (responseCode != 200) {
-            throw new RuntimeException("OCR API 호출 실패: " + responseCode + " - " + response.toString());
+            throw new UpstreamException("OCR API 호출 실패: " + responseCode + " - " + LogSanitizer.truncate(response.toString(), 500),
+                    responseCode, credentials.isRetryable(responseCode), null);
         }
 
-        return parseOcrResponseWithCoordinates(response.toString());
+        return response.toString();
+    }
+
+    /**
+     * multipart 요청의 파일 바이너리를 쓰는 작업
+     */
+    @FunctionalInterface
+    private interface FileBody {
+        /**
+         * @return 요청을 마무리하려면 true, 취소하려면 false
+         */
+        boolean writeTo(OutputStream out) throws IOException;
     }
     
     private String getFileExtension(String filename) {
@@ -132,8 +367,11 @@ public class ClovaOcrService {
         return filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
     }
 
-    private Map<String, Object> parseOcrResponseWithCoordinates(String responseJson) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * OCR 응답에서 필드별 텍스트와 좌표, 인식 신뢰도, 줄바꿈 여부를 추출하고
+     * 메뉴 분석에 넘길 행 단위 텍스트(menuLines)를 만듭니다.
+     */
+    Map<String, Object> parseOcrResponseWithCoordinates(String responseJson) throws IOException {
         JsonNode rootNode = objectMapper.readTree(responseJson);
         
         List<String> extractedTexts = new ArrayList<>();
@@ -156,6 +394,8 @@ public class ClovaOcrService {
                                 if (verticesNode.isArray() && verticesNode.size() >= 4) {
                                     Map<String, Object> textBox = new HashMap<>();
                                     textBox.put("text", inferText);
+                                    textBox.put("confidence", fieldNode.path("inferConfidence").asDouble(1.0));
+                                    textBox.put("lineBreak", fieldNode.path("lineBreak").asBoolean(false));
                                     
                                     List<Map<String, Integer>> vertices = new ArrayList<>();
                                     for (JsonNode vertex : verticesNode) {
@@ -177,6 +417,9 @@ public class ClovaOcrService {
         Map<String, Object> result = new HashMap<>();
         result.put("extractedTexts", extractedTexts);
         result.put("textBoxes", textBoxes);
+        result.put("menuLines", textBoxes.isEmpty()
+                ? extractedTexts
+                : OcrLayoutSerializer.serialize(textBoxes, minConfidence));
         
         return result;
     }
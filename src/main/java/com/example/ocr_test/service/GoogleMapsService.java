@@ -1,27 +1,110 @@
 package com.example.ocr_test.service;
 
+import com.example.ocr_test.resilience.Deadline;
+import com.example.ocr_test.resilience.Timeouts;
+import com.example.ocr_test.resilience.UpstreamCaller;
+import com.example.ocr_test.resilience.UpstreamException;
+import com.example.ocr_test.trace.LogSanitizer;
+import com.example.ocr_test.trace.Span;
+import com.example.ocr_test.trace.Trace;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 구글 지도 API 연동 서비스
  * 
  * 위치 좌표를 받아서 도로명 주소로 변환하는 서비스입니다.
+ * 지도 기능은 사용 빈도가 낮으므로 기동 시간을 줄이기 위해 첫 사용 시점에 지연 초기화합니다.
  */
+@Lazy
 @Service
 public class GoogleMapsService {
 
+    private static final Logger log = LoggerFactory.getLogger(GoogleMapsService.class);
+
     @Value("${google.places.api.key:}")
     private String apiKey;
 
-    private static final String REVERSE_GEOCODING_URL = "https://maps.googleapis.com/maps/api/geocode/json";
+    /**
+     * 일괄 주소 조회 시 동시에 호출할 지오코딩 API 요청 수
+     * 모든 요청이 같은 스레드 풀을 공유하므로 애플리케이션 전체의 동시 호출 수 상한이 됩니다.
+     */
+    @Value("${google.geocoding.batch-concurrency:8}")
+    private int batchConcurrency;
+
+    /**
+     * 일괄 주소 조회 시 같은 지점으로 간주할 좌표 소수점 자릿수 (5자리 ≒ 1.1m)
+     * 위도, 경도 차이가 모두 10^-dedupPrecision 이하인 좌표는 한 번만 조회합니다.
+     */
+    @Value("${google.geocoding.dedup-precision:5}")
+    private int dedupPrecision;
+
+    /**
+     * 일괄 주소 조회 한 번에 받을 수 있는 최대 좌표 수
+     */
+    @Value("${google.geocoding.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    /**
+     * 요청의 남은 처리 시간 중 주소 조회 단계에 줄 비율
+     */
+    @Value("${google.geocoding.budget-share:1.0}")
+    private double budgetShare;
+
+    /**
+     * 할당량 초과(OVER_QUERY_LIMIT) 응답을 받으면 모든 주소 조회를 이 시간(ms) 동안 멈춥니다.
+     * 일괄 조회의 작업 스레드가 한도에 걸린 API를 계속 두드리지 않고, 재시도가 할당량이 회복된 뒤에 나가도록 합니다.
+     */
+    @Value("${google.geocoding.quota-pause-ms:1000}")
+    private long quotaPauseMillis;
+
+    @Value("${google.geocoding.api-url:https://maps.googleapis.com/maps/api/geocode/json}")
+    private String reverseGeocodingUrl;
+
+    @Autowired
+    private UpstreamCaller upstreamCaller;
+
+    private ExecutorService executor;
+
+    private volatile long quotaPausedUntilNanos = System.nanoTime();
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newFixedThreadPool(batchConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "geocoding");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
 
     /**
      * 위도, 경도를 받아서 도로명 주소를 반환합니다.
@@ -37,21 +120,64 @@ public class GoogleMapsService {
 
         // 구글 지오코딩 API 요청 URL 생성
         String requestUrl = String.format("%s?latlng=%.6f,%.6f&key=%s&language=ko",
-                REVERSE_GEOCODING_URL, latitude, longitude, apiKey);
+                reverseGeocodingUrl, latitude, longitude, apiKey);
+
+        log.debug("Google Maps API 요청 url={}", LogSanitizer.redactUrl(requestUrl));
+
+        // 할당량 초과로 멈춘 시간이 이 단계의 남은 시간보다 길면 기다리지 않습니다. (UpstreamCaller와 같은 몫으로 계산)
+        Deadline requestDeadline = Deadline.current();
+        Deadline stageDeadline = requestDeadline != null ? requestDeadline.share(budgetShare) : null;
 
-        System.out.println("DEBUG: Google Maps API 요청 URL: " + requestUrl);
+        try (Span span = Trace.span("geocoding")) {
+            try {
+                // 지오코딩 API는 HTTP 200과 함께 status로 오류를 알리므로 응답 해석까지 한 번의 시도로 봅니다.
+                return upstreamCaller.call("geocoding", budgetShare, timeouts -> {
+                    waitForQuota(stageDeadline);
+                    return parseAddressFromResponse(callGeocodingApi(requestUrl, timeouts, span));
+                });
+            } catch (IOException | RuntimeException e) {
+                span.error(e);
+                throw e;
+            }
+        }
+    }
 
+    /**
+     * 할당량 초과로 멈춘 상태면 풀릴 때까지 기다립니다.
+     * 마감 시각 전에 풀리지 않으면 기다리지 않고 429 오류로 바로 실패합니다.
+     */
+    private void waitForQuota(Deadline stageDeadline) throws InterruptedIOException {
+        long remainingNanos = quotaPausedUntilNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return;
+        }
+        if (stageDeadline != null && TimeUnit.NANOSECONDS.toMillis(remainingNanos) >= stageDeadline.remainingMillis()) {
+            throw new UpstreamException("Google Maps API 할당량 초과: 요청 처리 시간 안에 조회를 재개할 수 없습니다.", 429, false, null);
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("주소 조회가 중단되었습니다.");
+        }
+    }
+
+    /**
+     * 지오코딩 API를 호출하고 응답 본문을 반환합니다.
+     */
+    private String callGeocodingApi(String requestUrl, Timeouts timeouts, Span span) throws IOException {
         // API 호출
         URL url = new URL(requestUrl);
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        timeouts.applyTo(connection);
         connection.setRequestMethod("GET");
         connection.setRequestProperty("Accept", "application/json");
 
         int responseCode = connection.getResponseCode();
-        System.out.println("DEBUG: Google Maps API 응답 코드: " + responseCode);
+        span.tag("status", responseCode);
 
         if (responseCode != 200) {
-            throw new RuntimeException("Google Maps API 호출 실패: " + responseCode);
+            throw new UpstreamException("Google Maps API 호출 실패: " + responseCode, responseCode);
         }
 
         // 응답 읽기
@@ -63,9 +189,102 @@ public class GoogleMapsService {
                 response.append(new String(buffer, 0, bytesRead, StandardCharsets.UTF_8));
             }
         }
+        span.tag("responseBytes", response.length());
+
+        return response.toString();
+    }
+
+    /**
+     * 여러 좌표의 도로명 주소를 한 번에 조회합니다.
+     * 
+     * 위도, 경도 차이가 모두 10^-dedupPrecision 이하인 좌표는 먼저 나온 좌표의 조회 결과를 함께 쓰고,
+     * 나머지 좌표는 공유 스레드 풀에서 병렬로 조회합니다.
+     * 결과는 입력 순서를 유지하며, 항목마다 address 또는 error를 담습니다.
+     * 
+     * @param coordinates latitude, longitude 값을 담은 좌표 목록
+     * @return 입력 순서대로 정렬된 조회 결과 목록
+     */
+    public List<Map<String, Object>> getAddressesFromCoordinates(List<Map<String, Object>> coordinates) {
+        if (apiKey.isEmpty()) {
+            throw new IllegalStateException("Google Places API 키가 설정되지 않았습니다. application.properties를 확인해주세요.");
+        }
+        if (coordinates.size() > maxBatchSize) {
+            throw new IllegalArgumentException("한 번에 조회할 수 있는 좌표는 최대 " + maxBatchSize + "개입니다.");
+        }
+
+        double scale = Math.pow(10, dedupPrecision);
+        Map<String, Future<String>> lookups = new HashMap<>();
+        // 격자 칸마다 처음 조회한 좌표 (반올림 경계 양쪽에 놓인 가까운 좌표를 이웃 칸에서 찾기 위해 둡니다)
+        Map<String, double[]> lookupPoints = new HashMap<>();
+        List<Object> keys = new ArrayList<>();
+
+        for (Map<String, Object> coordinate : coordinates) {
+            Object latitude = coordinate != null ? coordinate.get("latitude") : null;
+            Object longitude = coordinate != null ? coordinate.get("longitude") : null;
+            if (!(latitude instanceof Number lat) || !(longitude instanceof Number lng)
+                    || Math.abs(lat.doubleValue()) > 90 || Math.abs(lng.doubleValue()) > 180) {
+                keys.add(null);
+                continue;
+            }
+
+            // 거의 같은 지점은 하나의 조회 결과를 공유합니다.
+            String key = findNearbyLookup(lookupPoints, lat.doubleValue(), lng.doubleValue(), scale);
+            if (key == null) {
+                key = Math.round(lat.doubleValue() * scale) + "," + Math.round(lng.doubleValue() * scale);
+                lookupPoints.put(key, new double[] {lat.doubleValue(), lng.doubleValue()});
+                lookups.put(key, executor.submit(Deadline.wrap(Trace.wrap(
+                        () -> getAddressFromCoordinates(lat.doubleValue(), lng.doubleValue())))));
+            }
+            keys.add(key);
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < coordinates.size(); i++) {
+            Map<String, Object> coordinate = coordinates.get(i);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("latitude", coordinate != null ? coordinate.get("latitude") : null);
+            result.put("longitude", coordinate != null ? coordinate.get("longitude") : null);
+
+            Object key = keys.get(i);
+            if (key == null) {
+                result.put("error", "올바르지 않은 좌표입니다.");
+            } else {
+                try {
+                    result.put("address", lookups.get(key).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    lookups.values().forEach(future -> future.cancel(true));
+                    throw new IllegalStateException("주소 조회가 중단되었습니다.", e);
+                } catch (ExecutionException e) {
+                    result.put("error", e.getCause().getMessage());
+                }
+            }
+            results.add(result);
+        }
+
+        return results;
+    }
 
-        // 응답 파싱
-        return parseAddressFromResponse(response.toString());
+    /**
+     * 좌표가 속한 격자 칸과 이웃한 8칸에서 위도, 경도 차이가 모두 1/scale 이하인 조회 좌표를 찾아 그 키를 반환합니다.
+     * 반올림 격자만 쓰면 칸 경계 양쪽에 놓인 1cm 차이의 좌표도 따로 조회되므로 이웃 칸까지 살펴봅니다.
+     */
+    private static String findNearbyLookup(Map<String, double[]> lookupPoints, double latitude, double longitude, double scale) {
+        long latCell = Math.round(latitude * scale);
+        long lngCell = Math.round(longitude * scale);
+        double tolerance = 1 / scale;
+        // 자기 칸을 먼저 봅니다.
+        long[] offsets = {0, 1, -1};
+        for (long latOffset : offsets) {
+            for (long lngOffset : offsets) {
+                String key = (latCell + latOffset) + "," + (lngCell + lngOffset);
+                double[] point = lookupPoints.get(key);
+                if (point != null && Math.abs(point[0] - latitude) <= tolerance && Math.abs(point[1] - longitude) <= tolerance) {
+                    return key;
+                }
+            }
+        }
+        return null;
     }
 
     /**
@@ -75,11 +294,21 @@ public class GoogleMapsService {
         ObjectMapper objectMapper = new ObjectMapper();
         JsonNode rootNode = objectMapper.readTree(responseJson);
 
-        System.out.println("DEBUG: Google Maps API 응답: " + responseJson);
+        log.debug("Google Maps API 응답 body={}", LogSanitizer.truncate(responseJson, 500));
 
         String status = rootNode.path("status").asText();
+        if ("OVER_QUERY_LIMIT".equals(status)) {
+            // 할당량 초과도 HTTP 200으로 옵니다. 모든 조회를 잠시 멈추고, 백오프 후 다시 시도합니다.
+            quotaPausedUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(quotaPauseMillis);
+            log.atWarn()
+                    .addKeyValue("upstream", "geocoding")
+                    .addKeyValue("pauseMs", quotaPauseMillis)
+                    .log("지오코딩 할당량 초과, 조회 일시 중지");
+            throw new UpstreamException("Google Maps API 오류: " + status, 429, true, null);
+        }
         if (!"OK".equals(status)) {
-            throw new RuntimeException("Google Maps API 오류: " + status);
+            // UNKNOWN_ERROR는 일시적인 서버 오류로, 다시 요청하면 성공할 수 있습니다.
+            throw new UpstreamException("Google Maps API 오류: " + status, 200, "UNKNOWN_ERROR".equals(status), null);
         }
 
         JsonNode resultsNode = rootNode.path("results");
@@ -87,7 +316,7 @@ public class GoogleMapsService {
             JsonNode firstResult = resultsNode.get(0);
             String formattedAddress = firstResult.path("formatted_address").asText();
             
-            System.out.println("DEBUG: 추출된 주소: " + formattedAddress);
+            log.debug("추출된 주소 address={}", formattedAddress);
             return formattedAddress;
         }
 
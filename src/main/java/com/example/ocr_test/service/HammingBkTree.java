@@ -0,0 +1,108 @@
+package com.example.ocr_test.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 64비트 해시의 해밍 거리 기반 BK-트리
+ *
+ * 삼각 부등식을 이용해 질의 해시와 거리가 maxDistance 이내인 노드만 탐색하므로,
+ * 전체 항목을 비교하지 않고 가장 가까운 유사 해시를 찾을 수 있습니다.
+ * 삭제는 지원하지 않으며, 항목 제거가 필요하면 새 트리를 만들어 다시 채웁니다.
+ *
+ * 스레드 안전하지 않으므로 호출하는 쪽에서 동기화해야 합니다.
+ *
+ * @param <T> 해시와 함께 저장할 값
+ */
+class HammingBkTree<T> {
+
+    private Node<T> root;
+    private int size;
+
+    /**
+     * 해시와 값을 추가합니다.
+     */
+    void add(long hash, T value) {
+        size++;
+        if (root == null) {
+            root = new Node<>(hash, value);
+            return;
+        }
+
+        Node<T> node = root;
+        while (true) {
+            int distance = Long.bitCount(node.hash ^ hash);
+            Node<T> child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node<>(hash, value));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * 거리가 maxDistance 이내이고 조건을 만족하는 값 중 가장 가까운 값을 찾습니다.
+     *
+     * @param hash 질의 해시
+     * @param maxDistance 허용할 최대 해밍 거리
+     * @param filter 후보 값이 만족해야 하는 조건
+     * @return 가장 가까운 값과 거리, 없으면 null
+     */
+    Match<T> findNearest(long hash, int maxDistance, Predicate<T> filter) {
+        if (root == null) {
+            return null;
+        }
+
+        Match<T> best = null;
+        int limit = maxDistance;
+        Deque<Node<T>> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            Node<T> node = pending.pop();
+            int distance = Long.bitCount(node.hash ^ hash);
+            if (distance <= limit && filter.test(node.value)) {
+                if (best == null || distance < best.distance()) {
+                    best = new Match<>(node.value, distance);
+                    // 더 가까운 후보만 찾으면 되므로 탐색 범위를 좁힙니다.
+                    limit = distance;
+                    if (distance == 0) {
+                        break;
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Node<T>> child : node.children.entrySet()) {
+                int childDistance = child.getKey();
+                if (childDistance >= distance - limit && childDistance <= distance + limit) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        return best;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 검색 결과
+     */
+    record Match<T>(T value, int distance) {
+    }
+
+    private static class Node<T> {
+        final long hash;
+        final T value;
+        final Map<Integer, Node<T>> children = new HashMap<>();
+
+        Node(long hash, T value) {
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.ocr_test.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 스트리밍 이미지 업로드 본문
+ *
+ * 요청 본문을 모두 받기 전에 OCR 요청을 시작할 수 있도록, 클라이언트에서 받는 대로
+ * 외부 API 연결로 흘려 보내면서 다음 작업을 함께 합니다.
+ *
+ * - 첫 바이트(매직 넘버)로 이미지 형식을 판별하여, 지원하지 않는 파일은 본문을 받기 전에 거절합니다.
+ * - 받는 동안 SHA-256을 계산하여, 업로드가 끝나는 즉시 같은 이미지의 이전 결과를 찾을 수 있도록 합니다.
+ * - 받은 바이트를 메모리에 모아 두어, 외부 API 호출이 실패하면 처음부터 다시 보내고 결과 화면에도 씁니다.
+ * - 최대 크기를 넘으면 그 즉시 중단합니다.
+ *
+ * 한 요청 스레드에서만 사용합니다.
+ */
+public final class ImageUpload {
+
+    /**
+     * 형식 판별에 읽을 앞부분 크기
+     */
+    private static final int HEAD_BYTES = 8;
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final InputStream source;
+    private final Format format;
+    private final long declaredLength;
+    private final long maxBytes;
+    private final ByteArrayOutputStream received;
+    private final MessageDigest digest;
+    private boolean complete;
+    private String sha256;
+
+    private ImageUpload(InputStream source, Format format, long declaredLength, long maxBytes) {
+        this.source = source;
+        this.format = format;
+        this.declaredLength = declaredLength;
+        this.maxBytes = maxBytes;
+        this.received = new ByteArrayOutputStream(declaredLength > 0 ? (int) declaredLength : CHUNK_BYTES);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256을 사용할 수 없습니다.", e);
+        }
+    }
+
+    /**
+     * 본문의 앞부분만 읽어 형식을 확인합니다. 나머지는 {@link #writeTo}에서 받는 대로 읽습니다.
+     *
+     * @param source 요청 본문
+     * @param declaredLength Content-Length (모르면 -1)
+     * @param maxBytes 허용할 최대 크기
+     * @throws UploadRejectedException 비어 있거나(400), 너무 크거나(413), 지원하지 않는 형식(415)인 경우
+     */
+    public static ImageUpload open(InputStream source, long declaredLength, long maxBytes) {
+        if (declaredLength > maxBytes) {
+            throw tooLarge(maxBytes);
+        }
+
+        byte[] head = readSource(source, HEAD_BYTES);
+        if (head.length == 0) {
+            throw new UploadRejectedException("이미지 파일이 비어 있습니다.", 400);
+        }
+        Format format = Format.detect(head);
+        if (format == null) {
+            throw new UploadRejectedException(startsWith(head, "%PDF".getBytes())
+                    ? "PDF 파일은 /upload-pdf 로 업로드해주세요."
+                    : "JPEG, PNG, TIFF 이미지만 업로드 가능합니다.", 415);
+        }
+
+        ImageUpload upload = new ImageUpload(source, format, declaredLength, maxBytes);
+        upload.append(head, head.length);
+        if (head.length < HEAD_BYTES) {
+            upload.finish();
+        }
+        return upload;
+    }
+
+    /**
+     * 지금까지 받은 부분을 먼저 쓰고, 나머지는 클라이언트에서 받는 대로 이어서 씁니다.
+     * 앞선 시도가 중간에 실패했더라도 다시 호출하면 처음부터 다시 씁니다.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        received.writeTo(out);
+        byte[] chunk = new byte[CHUNK_BYTES];
+        while (!complete) {
+            int read = read(chunk);
+            if (read < 0) {
+                finish();
+                break;
+            }
+            // 받은 바이트를 먼저 보관해 두므로, 외부 API 쪽 쓰기가 실패해도 다음 시도에서 다시 보낼 수 있습니다.
+            append(chunk, read);
+            out.write(chunk, 0, read);
+        }
+    }
+
+    private int read(byte[] chunk) {
+        try {
+            return source.read(chunk);
+        } catch (IOException e) {
+            throw new UploadRejectedException("업로드가 중단되었습니다: " + e.getMessage(), 400, e);
+        }
+    }
+
+    private static byte[] readSource(InputStream source, int length) {
+        try {
+            return source.readNBytes(length);
+        } catch (IOException e) {
+            throw new UploadRejectedException("업로드가 중단되었습니다: " + e.getMessage(), 400, e);
+        }
+    }
+
+    private void append(byte[] bytes, int length) {
+        if (received.size() + (long) length > maxBytes) {
+            throw tooLarge(maxBytes);
+        }
+        received.write(bytes, 0, length);
+        digest.update(bytes, 0, length);
+    }
+
+    private void finish() {
+        if (declaredLength >= 0 && received.size() != declaredLength) {
+            throw new UploadRejectedException("업로드가 중간에 끊겼습니다. (" + received.size() + "/" + declaredLength + " bytes)", 400);
+        }
+        complete = true;
+        sha256 = HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static UploadRejectedException tooLarge(long maxBytes) {
+        return new UploadRejectedException("파일 크기는 " + (maxBytes / (1024 * 1024)) + "MB를 넘을 수 없습니다.", 413);
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    /**
+     * Content-Length (모르면 -1)
+     */
+    public long declaredLength() {
+        return declaredLength;
+    }
+
+    /**
+     * 지금까지 받은 크기
+     */
+    public int size() {
+        return received.size();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * 받은 본문 전체. 업로드를 모두 받은 뒤에만 호출할 수 있습니다.
+     */
+    public byte[] bytes() {
+        requireComplete();
+        return received.toByteArray();
+    }
+
+    /**
+     * 본문 전체의 SHA-256 (16진수). 업로드를 모두 받은 뒤에만 호출할 수 있습니다.
+     */
+    public String sha256() {
+        requireComplete();
+        return sha256;
+    }
+
+    private void requireComplete() {
+        if (!complete) {
+            throw new IllegalStateException("업로드를 모두 받기 전입니다.");
+        }
+    }
+
+    /**
+     * 클로바 OCR이 받는 이미지 형식과 매직 넘버
+     */
+    public enum Format {
+        JPEG("jpg", "image/jpeg", new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+        PNG("png", "image/png", new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+        TIFF_LITTLE_ENDIAN("tiff", "image/tiff", new byte[] {'I', 'I', 42, 0}),
+        TIFF_BIG_ENDIAN("tiff", "image/tiff", new byte[] {'M', 'M', 0, 42});
+
+        private final String extension;
+        private final String contentType;
+        private final byte[] magic;
+
+        Format(String extension, String contentType, byte[] magic) {
+            this.extension = extension;
+            this.contentType = contentType;
+            this.magic = magic;
+        }
+
+        /**
+         * 본문 앞부분으로 형식을 판별합니다. 알 수 없는 형식이면 null을 반환합니다.
+         */
+        static Format detect(byte[] head) {
+            for (Format format : values()) {
+                if (startsWith(head, format.magic)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.ocr_test.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 메뉴 이름 사전
+ *
+ * 메뉴 이름 사전을 한글 자모 단위 트라이로 올려 두고, OCR/LLM이 뽑은 메뉴 이름을
+ * 편집 거리 안에서 가장 가까운 정식 이름으로 바꾸고 중복을 합칩니다.
+ *
+ * - 한글 음절은 초성/중성/종성으로 나눠 비교하므로 "찌게 → 찌개"처럼 모음 하나가 틀린 경우는 1글자 차이로 봅니다.
+ * - 공백과 문장 부호는 무시합니다. ("김치 찌개" = "김치찌개")
+ * - 숫자, 영문, 괄호 안 글자는 고치지 않습니다. "A세트"/"B세트", "1인분"/"2인분", "떡볶이(소)"/"떡볶이(대)"처럼
+ *   서로 다른 메뉴를 구분하는 부분이므로, 이 부분이 하나라도 다르면 같은 메뉴로 보지 않습니다.
+ * - 트라이를 따라 내려가며 편집 거리 표를 한 줄씩 채우고, 한도를 넘는 가지는 바로 잘라내므로
+ *   사전 크기와 관계없이 한 줄에 수 마이크로초 수준으로 찾습니다.
+ *
+ * 사전 파일은 한 줄에 메뉴 하나이며, "정식이름|별칭|별칭" 형식으로 별칭을 함께 적을 수 있습니다.
+ */
+@Service
+public class MenuDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(MenuDictionary.class);
+
+    private static final int HANGUL_BASE = 0xAC00;
+    private static final int HANGUL_LAST = 0xD7A3;
+    private static final int JUNGSEONG_COUNT = 21;
+    private static final int JONGSEONG_COUNT = 28;
+
+    /**
+     * 종성이 없는 음절의 종성 자리. 음절마다 키 길이를 3으로 맞춰 음절 안 자모끼리만 비교할 수 있게 합니다.
+     */
+    private static final char NO_JONGSEONG = 0x11A7;
+
+    /**
+     * 고칠 수 없는 글자(숫자, 영문, 괄호 안 글자)를 넣거나 빼거나 바꾸는 비용. 어떤 허용 거리보다도 큽니다.
+     */
+    private static final int BLOCKED = 1 << 16;
+
+    @Value("${menu.dictionary.enabled:true}")
+    private boolean enabled;
+
+    @Value("${menu.dictionary.location:classpath:menu-dictionary.txt}")
+    private Resource location;
+
+    /**
+     * 허용할 최대 편집 거리 (자모 기준)
+     * 짧은 이름일수록 다른 메뉴와 가까우므로 자모 4개당 1까지만 허용합니다.
+     */
+    @Value("${menu.dictionary.max-edits:2}")
+    private int maxEdits;
+
+    private final Node root = new Node();
+    private int size;
+
+    @PostConstruct
+    void load() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (!location.exists()) {
+            log.warn("메뉴 사전 파일을 찾을 수 없습니다 location={}", location);
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(location.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] names = line.split("\\|");
+                String canonical = names[0].trim();
+                for (String name : names) {
+                    add(name, canonical);
+                }
+                size++;
+            }
+        }
+        log.info("메뉴 사전 로드 완료 entries={}", size);
+    }
+
+    /**
+     * 사전에 이름을 추가합니다.
+     *
+     * @param name 찾을 때 비교할 이름 (정식 이름 또는 별칭)
+     * @param canonical 찾았을 때 돌려줄 정식 이름
+     */
+    void add(String name, String canonical) {
+        String key = toKey(name);
+        if (key.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrAddChild(key.charAt(i));
+        }
+        if (node.canonical == null) {
+            node.canonical = canonical;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 텍스트와 가장 가까운 사전 항목을 찾습니다.
+     * 허용 거리 안에 항목이 없거나, 서로 다른 항목이 같은 거리로 겹쳐 어느 쪽인지 정할 수 없으면 null을 반환합니다.
+     */
+    public Match match(String text) {
+        String key = toKey(text);
+        if (key.isEmpty()) {
+            return null;
+        }
+
+        Search search = new Search(key, allowedEdits(key));
+        int[] firstRow = new int[key.length() + 1];
+        for (int i = 1; i < firstRow.length; i++) {
+            firstRow[i] = Math.min(BLOCKED, firstRow[i - 1] + editCost(key.charAt(i - 1)));
+        }
+        for (int i = 0; i < root.labels.length; i++) {
+            search.visit(root.children[i], root.labels[i], firstRow);
+        }
+        return search.best != null && !search.ambiguous ? new Match(search.best, search.bestDistance) : null;
+    }
+
+    /**
+     * 메뉴 이름 목록을 정식 이름으로 바꾸고 중복을 합칩니다. 처음 나온 순서를 유지합니다.
+     * 사전에 없는 이름끼리도 같은 자리 음절의 자모 몇 개만 다르면 먼저 나온 이름 하나만 남깁니다.
+     */
+    public List<String> canonicalize(List<String> items) {
+        if (!enabled) {
+            return items;
+        }
+
+        List<String> result = new ArrayList<>();
+        Set<String> seenKeys = new HashSet<>();
+        List<String> unmatchedKeys = new ArrayList<>();
+        for (String item : items) {
+            Match match = match(item);
+            String name = match != null ? match.canonical() : item.trim();
+            String key = toKey(name);
+            if (key.isEmpty() || !seenKeys.add(key)) {
+                continue;
+            }
+            if (match == null) {
+                if (isNearDuplicate(key, unmatchedKeys)) {
+                    continue;
+                }
+                unmatchedKeys.add(key);
+            }
+            result.add(name);
+        }
+        return result;
+    }
+
+    private boolean isNearDuplicate(String key, List<String> keys) {
+        int allowed = allowedEdits(key);
+        for (String other : keys) {
+            if (substitutionDistance(key, other, allowed) <= allowed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 키의 자모 4개당 1까지 허용합니다. 종성 자리 표시는 세지 않습니다.
+     */
+    private int allowedEdits(String key) {
+        int jamo = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (isJamo(c) && c != NO_JONGSEONG) {
+                jamo++;
+            }
+        }
+        return Math.min(maxEdits, jamo / 4);
+    }
+
+    /**
+     * 비교용 키를 만듭니다.
+     * 괄호 밖 한글 음절은 초성/중성/종성 세 글자로 나누고(종성이 없으면 자리 표시), 영문은 소문자로 바꾸며,
+     * 공백과 문장 부호는 버립니다. 괄호 안 글자는 음절 그대로 두고 괄호도 남겨 고칠 수 없는 글자로 다룹니다.
+     */
+    static String toKey(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(text.length() * 3);
+        int depth = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == '[' || c == '（') {
+                depth++;
+                key.append('(');
+            } else if ((c == ')' || c == ']' || c == '）') && depth > 0) {
+                depth--;
+                key.append(')');
+            } else if (depth == 0 && c >= HANGUL_BASE && c <= HANGUL_LAST) {
+                int index = c - HANGUL_BASE;
+                int jongseong = index % JONGSEONG_COUNT;
+                key.append((char) (0x1100 + index / (JUNGSEONG_COUNT * JONGSEONG_COUNT)));
+                key.append((char) (0x1161 + (index / JONGSEONG_COUNT) % JUNGSEONG_COUNT));
+                key.append(jongseong != 0 ? (char) (0x11A7 + jongseong) : NO_JONGSEONG);
+            } else if (Character.isLetterOrDigit(c)) {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 키에서 고칠 수 있는 글자는 괄호 밖 한글 자모뿐입니다.
+     */
+    private static boolean isJamo(char c) {
+        return c >= 0x1100 && c <= 0x11FF;
+    }
+
+    private static int editCost(char c) {
+        return isJamo(c) ? 1 : BLOCKED;
+    }
+
+    private static int substitutionCost(char a, char b) {
+        if (a == b) {
+            return 0;
+        }
+        return isJamo(a) && isJamo(b) ? 1 : BLOCKED;
+    }
+
+    /**
+     * 같은 자리 음절 안의 자모 치환만 세는 거리입니다. 음절 수가 다르거나, 자모 말고 다른 글자가 다르거나,
+     * limit을 넘으면 limit + 1을 반환합니다.
+     */
+    static int substitutionDistance(String a, String b, int limit) {
+        if (a.length() != b.length()) {
+            return limit + 1;
+        }
+        int distance = 0;
+        for (int i = 0; i < a.length(); i++) {
+            distance += substitutionCost(a.charAt(i), b.charAt(i));
+            if (distance > limit) {
+                return limit + 1;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * 사전 검색 결과
+     *
+     * @param canonical 정식 메뉴 이름
+     * @param distance 자모 기준 편집 거리 (0이면 공백/문장 부호를 빼고 정확히 일치)
+     */
+    public record Match(String canonical, int distance) {
+    }
+
+    /**
+     * 트라이 노드. 자식은 글자 순으로 정렬된 배열로 보관합니다.
+     */
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private String canonical;
+
+        Node getOrAddChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+            Node child = new Node();
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = child;
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    /**
+     * 트라이를 따라 내려가며 편집 거리 표를 한 줄씩 채우는 검색 상태
+     */
+    private static final class Search {
+        private final String key;
+        private final int maxDistance;
+        private String best;
+        private int bestDistance = Integer.MAX_VALUE;
+        private boolean ambiguous;
+
+        Search(String key, int maxDistance) {
+            this.key = key;
+            this.maxDistance = maxDistance;
+        }
+
+        void visit(Node node, char label, int[] previousRow) {
+            int columns = key.length() + 1;
+            int[] row = new int[columns];
+            int labelCost = editCost(label);
+            row[0] = Math.min(BLOCKED, previousRow[0] + labelCost);
+            int rowMin = row[0];
+            for (int i = 1; i < columns; i++) {
+                int insert = row[i - 1] + editCost(key.charAt(i - 1));
+                int delete = previousRow[i] + labelCost;
+                int substitute = previousRow[i - 1] + substitutionCost(key.charAt(i - 1), label);
+                row[i] = Math.min(BLOCKED, Math.min(Math.min(insert, delete), substitute));
+                rowMin = Math.min(rowMin, row[i]);
+            }
+
+            int distance = row[columns - 1];
+            if (node.canonical != null && distance <= maxDistance) {
+                if (distance < bestDistance) {
+                    best = node.canonical;
+                    bestDistance = distance;
+                    ambiguous = false;
+                } else if (distance == bestDistance && !node.canonical.equals(best)) {
+                    ambiguous = true;
+                }
+            }
+
+            // 이 가지의 어떤 항목도 현재 최선보다 가까울 수 없으면 더 내려가지 않습니다.
+            if (rowMin <= Math.min(maxDistance, bestDistance)) {
+                for (int i = 0; i < node.labels.length; i++) {
+                    visit(node.children[i], node.labels[i], row);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.example.ocr_test.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 유사 이미지 색인 서비스
+ *
+ * 이전에 처리한 이미지의 OCR/메뉴 분석 결과를 다시 쓸 수 있도록 합니다.
+ *
+ * - 바이트까지 같은 이미지(SHA-256 일치, {@link #findExact})는 결과를 그대로 재사용해도 됩니다.
+ * - 크기나 압축률만 다른 유사 이미지({@link #findMatch})는 힌트로만 씁니다. 가격 한 글자처럼 작은 차이는
+ *   썸네일로 구분할 수 없으므로, OCR은 다시 하고 그 결과가 같을 때만 메뉴 분석 결과를 이어받습니다.
+ *
+ * - 이미지마다 dHash(인접 셀 밝기 차이 해시)와 64x64 밝기 썸네일을 계산합니다.
+ * - 최근 이미지의 dHash를 해밍 거리 BK-트리에 색인하여 임계값 이내의 후보를 찾습니다.
+ * - 후보는 가로세로 비율, 썸네일 전체 상관계수, 썸네일 블록별 차이로 한 번 더 검증한 뒤에만 일치로 판단합니다.
+ *   색인은 모든 사용자가 함께 쓰고 일치하면 결과를 그대로 돌려주므로, 같은 양식에 가격이나 품목만 다른
+ *   메뉴판(같은 메뉴판의 다른 페이지 등)을 같은 이미지로 보면 안 됩니다. 전체 상관계수는 이런 차이에
+ *   둔감하므로, 8x8 블록마다 밝기를 비교하여 한 곳이라도 글자가 다르면 다른 이미지로 판단합니다.
+ */
+@Service
+public class NearDuplicateImageIndex {
+
+    @Value("${near-duplicate.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 후보로 찾을 dHash 최대 해밍 거리 (64비트 중)
+     * 크기나 압축률, 밝기만 다른 사본은 대부분 10비트 안에 들어옵니다. (여백이 많은 작은 이미지가 가장 크게 나옵니다)
+     */
+    @Value("${near-duplicate.max-distance:10}")
+    private int maxDistance;
+
+    /**
+     * 검증 단계에서 요구할 썸네일 밝기 상관계수 최솟값
+     */
+    @Value("${near-duplicate.min-correlation:0.95}")
+    private double minCorrelation;
+
+    /**
+     * 검증 단계에서 허용할 썸네일 블록별 차이의 최댓값
+     * 두 썸네일을 평균 0, 표준편차 1로 맞춘 뒤 8x8 셀 블록마다 평균 절대 차이를 구하여, 가장 큰 블록의 값과 비교합니다.
+     */
+    @Value("${near-duplicate.max-block-difference:0.25}")
+    private double maxBlockDifference;
+
+    /**
+     * 검증 단계에서 허용할 가로세로 비율 차이 (비율)
+     */
+    @Value("${near-duplicate.aspect-ratio-tolerance:0.1}")
+    private double aspectRatioTolerance;
+
+    /**
+     * 색인에 유지할 최근 이미지 수
+     */
+    @Value("${near-duplicate.capacity:1000}")
+    private int capacity;
+
+    /**
+     * 해시 계산 시 원본에서 읽을 최대 샘플 수 (가로/세로 각각)
+     */
+    private static final int MAX_SAMPLES = 256;
+
+    /**
+     * 검증용 썸네일 한 변의 크기
+     */
+    private static final int THUMBNAIL_SIZE = 64;
+
+    /**
+     * 블록별 검증에 쓰는 블록 한 변의 셀 수
+     */
+    private static final int BLOCK_SIZE = 8;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final Map<String, Entry> entriesBySha256 = new HashMap<>();
+    private HammingBkTree<Entry> tree = new HammingBkTree<>();
+    private int evictedInTree;
+
+    private long lookups;
+    private long hits;
+    private long exactHits;
+
+    /**
+     * 이미지의 지문(perceptual hash)을 계산합니다.
+     *
+     * @return 지문, 기능이 꺼져 있거나 디코딩할 수 없는 이미지면 null
+     */
+    public ImageFingerprint fingerprint(byte[] imageBytes) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+            return image != null ? fingerprint(image) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 이미지를 9x8(dHash), 64x64(썸네일) 격자로 축소한 밝기로부터 지문을 계산합니다.
+     * 큰 사진도 일정한 비용으로 처리하도록 최대 256x256 지점만 샘플링합니다.
+     */
+    static ImageFingerprint fingerprint(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int samplesX = Math.min(width, MAX_SAMPLES);
+        int samplesY = Math.min(height, MAX_SAMPLES);
+
+        double[] dSum = new double[9 * 8];
+        int[] dCount = new int[9 * 8];
+        double[] tSum = new double[THUMBNAIL_SIZE * THUMBNAIL_SIZE];
+        int[] tCount = new int[THUMBNAIL_SIZE * THUMBNAIL_SIZE];
+
+        for (int sy = 0; sy < samplesY; sy++) {
+            int y = (int) ((sy + 0.5) * height / samplesY);
+            for (int sx = 0; sx < samplesX; sx++) {
+                int x = (int) ((sx + 0.5) * width / samplesX);
+                int rgb = image.getRGB(x, y);
+                double luminance = 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+
+                int dCell = (sy * 8 / samplesY) * 9 + (sx * 9 / samplesX);
+                dSum[dCell] += luminance;
+                dCount[dCell]++;
+
+                int tCell = (sy * THUMBNAIL_SIZE / samplesY) * THUMBNAIL_SIZE + (sx * THUMBNAIL_SIZE / samplesX);
+                tSum[tCell] += luminance;
+                tCount[tCell]++;
+            }
+        }
+
+        long dHash = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                double left = average(dSum, dCount, row * 9 + col);
+                double right = average(dSum, dCount, row * 9 + col + 1);
+                dHash = (dHash << 1) | (left > right ? 1 : 0);
+            }
+        }
+
+        byte[] thumbnail = new byte[THUMBNAIL_SIZE * THUMBNAIL_SIZE];
+        for (int cell = 0; cell < thumbnail.length; cell++) {
+            thumbnail[cell] = (byte) Math.round(average(tSum, tCount, cell));
+        }
+
+        return new ImageFingerprint(dHash, thumbnail, width, height);
+    }
+
+    private static double average(double[] sum, int[] count, int cell) {
+        return count[cell] == 0 ? 0 : sum[cell] / count[cell];
+    }
+
+    /**
+     * 본문의 SHA-256을 16진수로 계산합니다. ({@link #findExact}, {@link #store}의 키)
+     */
+    public static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256을 사용할 수 없습니다.", e);
+        }
+    }
+
+    /**
+     * 지문과 유사한 최근 이미지를 찾습니다.
+     * 결과를 그대로 돌려주면 안 되고, {@link Entry#hasSameText}로 새 OCR 결과와 비교한 뒤에만 메뉴 분석 결과를 이어받습니다.
+     *
+     * @return 검증까지 통과한 가장 가까운 이미지, 없으면 null
+     */
+    public synchronized Entry findMatch(ImageFingerprint fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+
+        lookups++;
+        HammingBkTree.Match<Entry> match = tree.findNearest(fingerprint.dHash(), maxDistance,
+                candidate -> !candidate.evicted && verify(candidate.fingerprint, fingerprint));
+        if (match == null) {
+            return null;
+        }
+        hits++;
+        return match.value();
+    }
+
+    /**
+     * 본문의 SHA-256이 같은(바이트 단위로 같은) 최근 이미지를 찾습니다.
+     * 이미지를 디코딩하지 않으므로, 스트리밍 업로드가 끝나는 즉시 확인할 수 있습니다.
+     *
+     * @return 같은 이미지, 없으면 null
+     */
+    public synchronized Entry findExact(String sha256) {
+        if (!enabled || sha256 == null) {
+            return null;
+        }
+
+        Entry entry = entriesBySha256.get(sha256);
+        if (entry != null) {
+            // 일치하지 않으면 이어지는 유사 이미지 조회(findMatch)에서 조회 수를 셉니다.
+            lookups++;
+            hits++;
+            exactHits++;
+        }
+        return entry;
+    }
+
+    /**
+     * 검증: 가로세로 비율이 비슷하고, 썸네일 밝기 분포의 상관계수가 높고, 모든 블록의 밝기가 가까워야 같은 이미지로 봅니다.
+     */
+    private boolean verify(ImageFingerprint stored, ImageFingerprint candidate) {
+        double storedRatio = (double) stored.width() / stored.height();
+        double candidateRatio = (double) candidate.width() / candidate.height();
+        if (Math.abs(storedRatio - candidateRatio) > storedRatio * aspectRatioTolerance) {
+            return false;
+        }
+        return correlation(stored.thumbnail(), candidate.thumbnail()) >= minCorrelation
+                && maxBlockDifference(stored.thumbnail(), candidate.thumbnail()) <= maxBlockDifference;
+    }
+
+    /**
+     * 두 썸네일을 각각 평균 0, 표준편차 1로 맞춘 뒤, 8x8 셀 블록마다 평균 절대 차이를 구해 가장 큰 값을 반환합니다.
+     * 밝기나 대비가 달라진 사본은 모든 블록이 작게 나오고, 가격 한 줄처럼 일부만 다른 이미지는 그 블록만 크게 나옵니다.
+     */
+    static double maxBlockDifference(byte[] a, byte[] b) {
+        double[] normalizedA = normalize(a);
+        double[] normalizedB = normalize(b);
+        int size = (int) Math.sqrt(a.length);
+
+        double max = 0;
+        for (int blockY = 0; blockY < size; blockY += BLOCK_SIZE) {
+            for (int blockX = 0; blockX < size; blockX += BLOCK_SIZE) {
+                double sum = 0;
+                int count = 0;
+                for (int y = blockY; y < Math.min(blockY + BLOCK_SIZE, size); y++) {
+                    for (int x = blockX; x < Math.min(blockX + BLOCK_SIZE, size); x++) {
+                        sum += Math.abs(normalizedA[y * size + x] - normalizedB[y * size + x]);
+                        count++;
+                    }
+                }
+                max = Math.max(max, sum / count);
+            }
+        }
+        return max;
+    }
+
+    private static double[] normalize(byte[] thumbnail) {
+        double mean = 0;
+        for (byte value : thumbnail) {
+            mean += value & 0xFF;
+        }
+        mean /= thumbnail.length;
+
+        double variance = 0;
+        for (byte value : thumbnail) {
+            double d = (value & 0xFF) - mean;
+            variance += d * d;
+        }
+        // 단색 이미지는 차이를 그대로 비교합니다.
+        double deviation = Math.max(Math.sqrt(variance / thumbnail.length), 1);
+
+        double[] normalized = new double[thumbnail.length];
+        for (int i = 0; i < thumbnail.length; i++) {
+            normalized[i] = ((thumbnail[i] & 0xFF) - mean) / deviation;
+        }
+        return normalized;
+    }
+
+    /**
+     * 두 썸네일 밝기값의 피어슨 상관계수를 계산합니다.
+     * 밝기나 대비가 조금 달라져도 같은 구도라면 1에 가까운 값이 나옵니다.
+     */
+    static double correlation(byte[] a, byte[] b) {
+        double meanA = 0;
+        double meanB = 0;
+        for (int i = 0; i < a.length; i++) {
+            meanA += a[i] & 0xFF;
+            meanB += b[i] & 0xFF;
+        }
+        meanA /= a.length;
+        meanB /= b.length;
+
+        double covariance = 0;
+        double varianceA = 0;
+        double varianceB = 0;
+        for (int i = 0; i < a.length; i++) {
+            double da = (a[i] & 0xFF) - meanA;
+            double db = (b[i] & 0xFF) - meanB;
+            covariance += da * db;
+            varianceA += da * da;
+            varianceB += db * db;
+        }
+        if (varianceA == 0 || varianceB == 0) {
+            // 단색 이미지끼리는 평균 밝기가 같을 때만 같은 이미지로 봅니다.
+            return Math.abs(meanA - meanB) < 1 ? 1.0 : 0.0;
+        }
+        return covariance / Math.sqrt(varianceA * varianceB);
+    }
+
+    /**
+     * OCR 결과를 지문과 함께 색인에 저장합니다.
+     * 호출한 쪽에서 결과를 수정하더라도 영향을 받지 않도록 목록을 복사해 둡니다.
+     *
+     * @return 저장된 항목, 지문이 없으면 null
+     */
+    public Entry store(ImageFingerprint fingerprint, Map<String, Object> ocrResult) {
+        return store(fingerprint, ocrResult, null);
+    }
+
+    /**
+     * OCR 결과를 지문, 본문의 SHA-256과 함께 색인에 저장합니다.
+     *
+     * @param sha256 {@link #findExact}로 찾을 본문 해시 (없으면 null)
+     * @return 저장된 항목, 지문이 없으면 null
+     */
+    public synchronized Entry store(ImageFingerprint fingerprint, Map<String, Object> ocrResult, String sha256) {
+        if (fingerprint == null) {
+            return null;
+        }
+
+        Entry entry = new Entry(fingerprint, copyOcrResult(ocrResult), sha256);
+        entries.addLast(entry);
+        tree.add(fingerprint.dHash(), entry);
+        if (sha256 != null) {
+            entriesBySha256.put(sha256, entry);
+        }
+
+        while (entries.size() > capacity) {
+            Entry evicted = entries.removeFirst();
+            evicted.evicted = true;
+            if (evicted.sha256 != null) {
+                entriesBySha256.remove(evicted.sha256, evicted);
+            }
+            evictedInTree++;
+        }
+
+        // BK-트리는 삭제를 지원하지 않으므로, 제거된 항목이 충분히 쌓이면 살아있는 항목으로 다시 만듭니다.
+        if (evictedInTree > Math.max(capacity / 2, 1)) {
+            tree = new HammingBkTree<>();
+            for (Entry live : entries) {
+                tree.add(live.fingerprint.dHash(), live);
+            }
+            evictedInTree = 0;
+        }
+        return entry;
+    }
+
+    private static Map<String, Object> copyOcrResult(Map<String, Object> ocrResult) {
+        Map<String, Object> copy = new HashMap<>(ocrResult);
+        for (Map.Entry<String, Object> field : ocrResult.entrySet()) {
+            if (field.getValue() instanceof List<?> list) {
+                copy.put(field.getKey(), new ArrayList<>(list));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * 유사 이미지 적중률 통계를 반환합니다.
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("lookups", lookups);
+        stats.put("hits", hits);
+        stats.put("exactHits", exactHits);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("indexedImages", entries.size());
+        return stats;
+    }
+
+    /**
+     * 이미지 지문
+     *
+     * @param dHash 인접 셀 밝기 비교 해시 (색인 키)
+     * @param thumbnail 64x64 밝기 썸네일 (검증용)
+     * @param width 원본 가로 크기
+     * @param height 원본 세로 크기
+     */
+    public record ImageFingerprint(long dHash, byte[] thumbnail, int width, int height) {
+    }
+
+    /**
+     * 색인된 이미지의 처리 결과
+     * 메뉴 분석 결과는 OCR 이후에 채워질 수 있습니다.
+     */
+    public static class Entry {
+        private final ImageFingerprint fingerprint;
+        private final Map<String, Object> ocrResult;
+        private final String sha256;
+        private volatile List<String> menuItems;
+        private boolean evicted;
+
+        Entry(ImageFingerprint fingerprint, Map<String, Object> ocrResult, String sha256) {
+            this.fingerprint = fingerprint;
+            this.ocrResult = ocrResult;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * 저장된 OCR 결과의 사본
+         */
+        public Map<String, Object> getOcrResult() {
+            return copyOcrResult(ocrResult);
+        }
+
+        /**
+         * 새 OCR 결과의 추출 텍스트가 이 항목과 같은지 확인합니다.
+         * 유사 이미지의 메뉴 분석 결과는 텍스트가 같을 때만 이어받습니다.
+         */
+        public boolean hasSameText(Map<String, Object> otherOcrResult) {
+            Object texts = ocrResult.get("extractedTexts");
+            return texts != null && texts.equals(otherOcrResult.get("extractedTexts"));
+        }
+
+        public List<String> getMenuItems() {
+            return menuItems;
+        }
+
+        public void setMenuItems(List<String> menuItems) {
+            this.menuItems = List.copyOf(menuItems);
+        }
+    }
+}
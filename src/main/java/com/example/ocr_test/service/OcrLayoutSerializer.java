@@ -0,0 +1,227 @@
+package com.example.ocr_test.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OCR 결과를 메뉴판 행 단위 텍스트로 바꾸는 도구
+ *
+ * 클로바 OCR은 단어(필드) 단위로 결과를 주므로, 그대로 줄바꿈으로 이으면 메뉴 이름과 가격이
+ * 서로 다른 줄로 흩어지고 LLM 프롬프트도 길어집니다. 이 도구는 필드를 좌표로 다시 묶어
+ * 메뉴판 한 행을 한 줄("김치찌개 8000")로 만듭니다.
+ *
+ * - 같은 줄(lineBreak)의 필드를 묶고, 세로로 절반 이상 겹치는 줄은 같은 행으로 합친 뒤 x 좌표 순으로 정렬합니다.
+ * - 인식 신뢰도가 낮은 필드와 점선, 구분선처럼 글자가 없는 필드는 버립니다.
+ * - 가격은 쉼표와 '원'을 빼고 숫자만 남깁니다. ("8,000원" → "8000")
+ * - 2단 메뉴판처럼 한 행에서 가격 뒤로 다른 메뉴가 이어지면 별도의 줄로 나눕니다.
+ *   ("소 8000 중 10000"처럼 한 글자짜리 크기 구분은 나누지 않습니다.)
+ */
+public final class OcrLayoutSerializer {
+
+    private OcrLayoutSerializer() {
+    }
+
+    /**
+     * textBoxes를 메뉴판 행 단위 텍스트 목록으로 바꿉니다.
+     *
+     * @param textBoxes text, vertices, confidence, lineBreak를 담은 OCR 필드 목록 (인식 순서)
+     * @param minConfidence 이 값보다 신뢰도가 낮은 필드는 버립니다.
+     */
+    public static List<String> serialize(List<Map<String, Object>> textBoxes, double minConfidence) {
+        List<List<Box>> lines = groupLines(textBoxes, minConfidence);
+        List<Row> rows = mergeRows(lines);
+
+        List<String> result = new ArrayList<>();
+        for (Row row : rows) {
+            row.boxes.sort(Comparator.comparingInt(box -> box.left));
+            appendRow(row, result);
+        }
+        return result;
+    }
+
+    /**
+     * lineBreak를 기준으로 필드를 줄로 묶습니다. 버린 필드의 lineBreak는 앞 필드로 넘깁니다.
+     */
+    private static List<List<Box>> groupLines(List<Map<String, Object>> textBoxes, double minConfidence) {
+        List<List<Box>> lines = new ArrayList<>();
+        List<Box> current = new ArrayList<>();
+        for (Map<String, Object> textBox : textBoxes) {
+            Box box = Box.of(textBox);
+            boolean keep = box != null && box.confidence >= minConfidence && hasLetterOrDigit(box.text);
+            if (keep) {
+                current.add(box);
+            }
+            if (Boolean.TRUE.equals(textBox.get("lineBreak")) && !current.isEmpty()) {
+                lines.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            lines.add(current);
+        }
+        return lines;
+    }
+
+    /**
+     * 세로로 겹치는 줄을 하나의 행으로 합칩니다.
+     */
+    private static List<Row> mergeRows(List<List<Box>> lines) {
+        List<Row> lineRows = new ArrayList<>();
+        for (List<Box> line : lines) {
+            lineRows.add(new Row(line));
+        }
+        lineRows.sort(Comparator.comparingInt(row -> row.top));
+
+        List<Row> rows = new ArrayList<>();
+        for (Row line : lineRows) {
+            Row last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            if (last != null && last.overlaps(line)) {
+                last.merge(line);
+            } else {
+                rows.add(line);
+            }
+        }
+        return rows;
+    }
+
+    private static void appendRow(Row row, List<String> result) {
+        StringBuilder line = new StringBuilder();
+        Box previous = null;
+        for (Box box : row.boxes) {
+            String text = box.text.trim();
+            boolean price = isPrice(text);
+
+            if (previous != null && previous.price) {
+                // 가격 다음의 '원'은 가격에 포함된 것으로 봅니다.
+                if (text.equals("원")) {
+                    continue;
+                }
+                // 가격 뒤에 이어지는 이름은 다음 메뉴이므로 줄을 나눕니다.
+                if (!price && text.length() >= 2) {
+                    result.add(line.toString());
+                    line.setLength(0);
+                }
+            }
+
+            if (!line.isEmpty()) {
+                line.append(' ');
+            }
+            line.append(price ? normalizePrice(text) : text);
+            previous = box;
+            box.price = price;
+        }
+        if (!line.isEmpty()) {
+            result.add(line.toString());
+        }
+    }
+
+    /**
+     * 가격 형태의 필드인지 확인합니다. (8000, 8,000, 8,000원, ₩8,000)
+     */
+    static boolean isPrice(String text) {
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c)) {
+                digits++;
+            } else if (c != ',' && !(c == '원' && i == text.length() - 1) && !(c == '₩' && i == 0)) {
+                return false;
+            }
+        }
+        return digits >= 3;
+    }
+
+    private static String normalizePrice(String text) {
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isDigit(text.charAt(i))) {
+                digits.append(text.charAt(i));
+            }
+        }
+        return digits.toString();
+    }
+
+    private static boolean hasLetterOrDigit(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * OCR 필드 하나의 글자와 경계 상자
+     */
+    private static final class Box {
+        private final String text;
+        private final double confidence;
+        private final int left;
+        private final int top;
+        private final int bottom;
+        private boolean price;
+
+        private Box(String text, double confidence, int left, int top, int bottom) {
+            this.text = text;
+            this.confidence = confidence;
+            this.left = left;
+            this.top = top;
+            this.bottom = bottom;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Box of(Map<String, Object> textBox) {
+            Object text = textBox.get("text");
+            Object vertices = textBox.get("vertices");
+            if (!(text instanceof String value) || !(vertices instanceof List<?> points) || points.isEmpty()) {
+                return null;
+            }
+
+            int left = Integer.MAX_VALUE;
+            int top = Integer.MAX_VALUE;
+            int bottom = Integer.MIN_VALUE;
+            for (Object point : points) {
+                Map<String, Integer> vertex = (Map<String, Integer>) point;
+                left = Math.min(left, vertex.get("x"));
+                top = Math.min(top, vertex.get("y"));
+                bottom = Math.max(bottom, vertex.get("y"));
+            }
+
+            // 신뢰도가 없는 결과(이전 형식, 더미 데이터)는 모두 통과시킵니다.
+            double confidence = textBox.get("confidence") instanceof Number number ? number.doubleValue() : 1.0;
+            return new Box(value, confidence, left, top, bottom);
+        }
+    }
+
+    /**
+     * 메뉴판의 한 행. 세로 범위는 포함된 필드의 범위를 모두 덮습니다.
+     */
+    private static final class Row {
+        private final List<Box> boxes;
+        private int top;
+        private int bottom;
+
+        Row(List<Box> boxes) {
+            this.boxes = new ArrayList<>(boxes);
+            this.top = boxes.stream().mapToInt(box -> box.top).min().orElse(0);
+            this.bottom = boxes.stream().mapToInt(box -> box.bottom).max().orElse(0);
+        }
+
+        /**
+         * 두 행의 세로 범위가 낮은 쪽 높이의 절반 이상 겹치는지 확인합니다.
+         */
+        boolean overlaps(Row other) {
+            int overlap = Math.min(bottom, other.bottom) - Math.max(top, other.top);
+            int smallerHeight = Math.min(bottom - top, other.bottom - other.top);
+            return smallerHeight > 0 && overlap * 2 >= smallerHeight;
+        }
+
+        void merge(Row other) {
+            boxes.addAll(other.boxes);
+            top = Math.min(top, other.top);
+            bottom = Math.max(bottom, other.bottom);
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package com.example.ocr_test.service;
 
+import com.example.ocr_test.resilience.CredentialPool;
+import com.example.ocr_test.resilience.Timeouts;
+import com.example.ocr_test.resilience.UpstreamCaller;
+import com.example.ocr_test.resilience.UpstreamException;
+import com.example.ocr_test.trace.LogSanitizer;
+import com.example.ocr_test.trace.Span;
+import com.example.ocr_test.trace.Trace;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -13,6 +24,7 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * OpenAI API 연동 서비스
@@ -23,19 +35,66 @@ import java.util.List;
 @Service
 public class OpenAIService {
 
+    private static final Logger log = LoggerFactory.getLogger(OpenAIService.class);
+
     @Value("${openai.api.key:}")
     private String apiKey;
 
+    /**
+     * 여러 키로 호출 한도를 나눠 쓸 때의 API 키 목록 (쉼표로 구분)
+     * 설정하면 openai.api.key 대신 사용합니다.
+     */
+    @Value("${openai.api.keys:}")
+    private String apiKeys;
+
+    /**
+     * 키별 가중치 목록 (쉼표로 구분, 비우면 모두 1)
+     */
+    @Value("${openai.api.key-weights:}")
+    private String keyWeights;
+
+    /**
+     * 429 응답을 받은 키를 쉬게 할 시간 (Retry-After 헤더가 있으면 그 값을 따름)
+     */
+    @Value("${openai.api.key-cooldown-ms:30000}")
+    private long keyCooldownMillis;
+
+    /**
+     * 요청의 남은 처리 시간 중 메뉴 분석 단계에 줄 비율
+     */
+    @Value("${openai.api.budget-share:1.0}")
+    private double budgetShare;
+
+    @Autowired
+    private UpstreamCaller upstreamCaller;
+
+    @Autowired
+    private MenuDictionary menuDictionary;
+
+    private CredentialPool credentials;
+
+    @PostConstruct
+    void initCredentials() {
+        credentials = CredentialPool.of("openai", "openai.api", apiKeys.isBlank() ? apiKey : apiKeys, "", keyWeights, keyCooldownMillis);
+    }
+
+    /**
+     * 키별 사용 통계를 반환합니다.
+     */
+    public List<Map<String, Object>> getCredentialStats() {
+        return credentials.getStats();
+    }
+
     private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
 
     /**
      * OCR로 추출된 텍스트를 분석하여 메뉴 이름만 추출합니다.
      * 
-     * @param extractedTexts OCR로 추출된 텍스트 목록
+     * @param extractedTexts OCR로 추출된 텍스트 목록 (메뉴판 행 단위 텍스트 menuLines 권장)
      * @return 분석된 메뉴 이름 목록
      */
     public List<String> analyzeMenuItems(List<String> extractedTexts) throws IOException {
-        if (apiKey.isEmpty()) {
+        if (credentials.isEmpty()) {
             throw new IllegalStateException("OpenAI API 키가 설정되지 않았습니다. application.properties를 확인해주세요.");
         }
 
@@ -45,23 +104,33 @@ public class OpenAIService {
         // OpenAI API 요청 페이로드 생성
         String requestBody = createRequestBody(combinedText);
 
-        // API 호출
-        String response = callOpenAIAPI(requestBody);
+        try (Span span = Trace.span("openai")) {
+            span.tag("requestBytes", requestBody.length());
+            try {
+                // API 호출
+                String response = upstreamCaller.call("openai", budgetShare, timeouts -> {
+                    try (CredentialPool.Lease credential = credentials.acquire()) {
+                        return callOpenAIAPI(requestBody, credential, timeouts, span);
+                    }
+                });
 
-        // 응답 파싱하여 메뉴 이름 추출
-        return parseMenuItems(response);
+                // 응답 파싱하여 메뉴 이름 추출
+                return parseMenuItems(response);
+            } catch (IOException | RuntimeException e) {
+                span.error(e);
+                throw e;
+            }
+        }
     }
 
     private String createRequestBody(String text) {
         try {
             ObjectMapper objectMapper = new ObjectMapper();
             
-            // 텍스트 정리 및 이스케이프 처리
-            String cleanedText = cleanTextForJson(text);
-            
             // JSON 구조 생성
             String systemMessage = "당신은 메뉴판 분석 전문가입니다. 주어진 텍스트에서 음식 메뉴 이름만 추출해주세요. 가격, 설명, 기타 정보는 제외하고 순수한 메뉴 이름만 추출하세요. 각 메뉴는 한 줄씩 구분하여 JSON 배열 형태로 응답해주세요.";
-            String userMessage = "다음 텍스트에서 음식 메뉴 이름만 추출해주세요:\n\n" + cleanedText;
+            // 이스케이프는 ObjectMapper가 처리하므로 원문 그대로 넣습니다. (직접 이스케이프하면 줄바꿈이 역슬래시와 n 두 글자로 전달됨)
+            String userMessage = "다음 메뉴판 텍스트(한 줄에 한 행)에서 음식 메뉴 이름만 추출해주세요:\n\n" + text;
             
             // JSON 객체 구성
             var requestData = new java.util.HashMap<String, Object>();
@@ -89,31 +158,20 @@ public class OpenAIService {
         }
     }
     
-    /**
-     * JSON에 안전하게 포함될 수 있도록 텍스트를 정리합니다.
-     */
-    private String cleanTextForJson(String text) {
-        if (text == null) return "";
-        
-        return text
-            .replace("\\", "\\\\")  // 백슬래시 이스케이프
-            .replace("\"", "\\\"")  // 따옴표 이스케이프
-            .replace("\n", "\\n")   // 줄바꿈을 \\n으로 변경
-            .replace("\r", "\\r")   // 캐리지 리턴을 \\r으로 변경
-            .replace("\t", "\\t");  // 탭을 \\t으로 변경
-    }
-
-    private String callOpenAIAPI(String requestBody) throws IOException {
-        System.out.println("DEBUG: OpenAI API 요청 시작");
-        System.out.println("DEBUG: API Key 길이: " + (apiKey != null ? apiKey.length() : "null"));
-        System.out.println("DEBUG: 요청 Body: " + requestBody);
+    private String callOpenAIAPI(String requestBody, CredentialPool.Lease credential, Timeouts timeouts, Span span) throws IOException {
+        log.debug("OpenAI API 요청 body={}", LogSanitizer.truncate(requestBody, 500));
         
         URL url = new URL(OPENAI_API_URL);
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        timeouts.applyTo(connection);
         
         connection.setRequestMethod("POST");
         connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Authorization", "Bearer " + apiKey);
+        connection.setRequestProperty("Authorization", "Bearer " + credential.secret());
+        if (Trace.currentId() != null) {
+            // OpenAI 요청 로그와 연결할 수 있도록 추적 ID를 전달합니다.
+            connection.setRequestProperty("X-Client-Request-Id", Trace.currentId());
+        }
         connection.setDoOutput(true);
 
         try (OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8)) {
@@ -122,18 +180,19 @@ public class OpenAIService {
         }
 
         int responseCode = connection.getResponseCode();
-        System.out.println("DEBUG: 응답 코드: " + responseCode);
+        credential.recordResponse(responseCode, connection.getHeaderField("Retry-After"));
+        span.tag("status", responseCode).tag("credential", credential.id());
         
         // 에러 응답 읽기
         String errorResponse = "";
         if (responseCode != 200) {
             try (var errorStream = connection.getErrorStream()) {
                 if (errorStream != null) {
-                    errorResponse = new String(errorStream.readAllBytes(), StandardCharsets.UTF_8);
-                    System.out.println("DEBUG: 에러 응답: " + errorResponse);
+                    errorResponse = LogSanitizer.truncate(new String(errorStream.readAllBytes(), StandardCharsets.UTF_8), 500);
                 }
             }
-            throw new RuntimeException("OpenAI API 호출 실패: " + responseCode + " - " + errorResponse);
+            throw new UpstreamException("OpenAI API 호출 실패: " + responseCode + " - " + errorResponse,
+                    responseCode, credentials.isRetryable(responseCode), null);
         }
 
         StringBuilder response = new StringBuilder();
@@ -144,6 +203,7 @@ public class OpenAIService {
                 response.append(new String(buffer, 0, bytesRead, StandardCharsets.UTF_8));
             }
         }
+        span.tag("responseBytes", response.length());
 
         return response.toString();
     }
@@ -160,7 +220,7 @@ public class OpenAIService {
             JsonNode messageNode = firstChoice.path("message");
             String content = messageNode.path("content").asText();
             
-            System.out.println("DEBUG: OpenAI 응답 내용: " + content);
+            log.debug("OpenAI 응답 content={}", LogSanitizer.truncate(content, 500));
             
             // JSON 배열 형태로 응답이 오는 경우 파싱
             if (content.trim().startsWith("[")) {
@@ -175,7 +235,7 @@ public class OpenAIService {
                         }
                     }
                 } catch (Exception e) {
-                    System.out.println("DEBUG: JSON 파싱 실패, 텍스트 파싱으로 전환: " + e.getMessage());
+                    log.debug("JSON 파싱 실패, 텍스트 파싱으로 전환 error={}", e.getMessage());
                     // JSON 파싱 실패 시 줄 단위로 분할
                     parseTextContent(content, menuItems);
                 }
@@ -185,35 +245,98 @@ public class OpenAIService {
             }
         }
         
-        System.out.println("DEBUG: 최종 메뉴 목록: " + menuItems);
-        return menuItems;
+        // OCR 오인식을 사전의 정식 이름으로 바로잡고 중복을 합칩니다.
+        List<String> canonicalItems = menuDictionary.canonicalize(menuItems);
+        log.debug("최종 메뉴 목록 parsed={} canonical={}", menuItems.size(), canonicalItems.size());
+        return canonicalItems;
     }
     
     /**
      * 텍스트 내용을 파싱하여 메뉴 목록을 추출합니다.
      */
     private void parseTextContent(String content, List<String> menuItems) {
-        // 마크다운 코드 블록 제거
-        content = content.replaceAll("```json\\s*", "").replaceAll("```\\s*", "");
-        
-        String[] lines = content.split("\n");
-        for (String line : lines) {
-            String cleanedLine = line.trim()
-                .replaceAll("^[\\[\\]\"\\-\\s]+", "") // 시작 부분의 특수문자 제거
-                .replaceAll("[\\[\\]\"\\s,]+$", "") // 끝 부분의 특수문자 제거
-                .replaceAll("^\"|\"$", "") // 양 끝의 따옴표 제거
-                .replaceAll("\\s*\\d+원.*$", "") // 가격 정보 제거
-                .replaceAll("^\\d+\\.\\s*", ""); // 번호 제거 (1. 2. 등)
-            
-            if (!cleanedLine.isEmpty() && 
-                !cleanedLine.equals(",") && 
-                !cleanedLine.matches("^\\d+$") &&
-                !cleanedLine.equals("[") &&
-                !cleanedLine.equals("]") &&
-                !cleanedLine.startsWith("```") && // 마크다운 코드 블록 시작 제거
-                !cleanedLine.equals("```")) { // 마크다운 코드 블록 끝 제거
+        for (String line : content.split("\n")) {
+            String cleanedLine = cleanMenuLine(line);
+            if (cleanedLine != null) {
                 menuItems.add(cleanedLine);
             }
         }
     }
+
+    /**
+     * 응답 한 줄에서 메뉴 이름만 남깁니다. 메뉴 이름이 없는 줄이면 null을 반환합니다.
+     *
+     * 줄을 한 번만 훑으면서 다음을 제거합니다.
+     * - 마크다운 코드 블록 표시 (```json, ```)
+     * - 앞쪽의 괄호, 따옴표, 목록 기호(-)와 번호 (1. 2. 등)
+     * - 가격 정보 (8000원, 8,000원 과 그 뒤의 내용)
+     * - 뒤쪽의 괄호, 따옴표, 쉼표
+     */
+    static String cleanMenuLine(String line) {
+        int start = skipLeading(line, 0, line.length());
+
+        // 마크다운 코드 블록 표시
+        if (line.startsWith("```", start)) {
+            start += 3;
+            if (line.regionMatches(true, start, "json", 0, 4)) {
+                start += 4;
+            }
+            start = skipLeading(line, start, line.length());
+        }
+
+        // 번호 (1. 2. 등)
+        int digitsEnd = start;
+        while (digitsEnd < line.length() && Character.isDigit(line.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        if (digitsEnd > start && digitsEnd < line.length() && line.charAt(digitsEnd) == '.') {
+            start = skipLeading(line, digitsEnd + 1, line.length());
+        }
+
+        // 가격 정보: 숫자(쉼표 포함) 바로 뒤에 '원'이 오면 숫자 앞에서 자릅니다.
+        int end = line.length();
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(line.charAt(i))) {
+                continue;
+            }
+            int numberEnd = i;
+            while (numberEnd < end && (Character.isDigit(line.charAt(numberEnd)) || line.charAt(numberEnd) == ',')) {
+                numberEnd++;
+            }
+            if (numberEnd < end && line.charAt(numberEnd) == '원') {
+                end = i;
+                break;
+            }
+            i = numberEnd;
+        }
+
+        while (end > start && isTrailingSymbol(line.charAt(end - 1))) {
+            end--;
+        }
+        if (end <= start) {
+            return null;
+        }
+
+        // 숫자만 남은 줄(가격, 번호)은 메뉴 이름이 아닙니다.
+        boolean digitsOnly = true;
+        for (int i = start; i < end && digitsOnly; i++) {
+            digitsOnly = Character.isDigit(line.charAt(i));
+        }
+        return digitsOnly ? null : line.substring(start, end);
+    }
+
+    private static int skipLeading(String line, int start, int end) {
+        while (start < end && isLeadingSymbol(line.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static boolean isLeadingSymbol(char c) {
+        return Character.isWhitespace(c) || c == '[' || c == ']' || c == '"' || c == '-';
+    }
+
+    private static boolean isTrailingSymbol(char c) {
+        return Character.isWhitespace(c) || c == '[' || c == ']' || c == '"' || c == ',';
+    }
 }
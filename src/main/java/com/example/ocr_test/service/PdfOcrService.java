@@ -0,0 +1,268 @@
+package com.example.ocr_test.service;
+
+import com.example.ocr_test.resilience.Deadline;
+import com.example.ocr_test.resilience.DeadlineExceededException;
+import com.example.ocr_test.trace.Trace;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * PDF 메뉴판 OCR 서비스
+ *
+ * PDF 문서를 페이지 단위로 하나씩 렌더링하여 클로바 OCR에 전달하고,
+ * 페이지별 결과를 완료되는 순서대로 전달하는 서비스입니다.
+ *
+ * 문서는 임시 파일 기반 캐시로 열어 전체를 메모리에 올리지 않으며,
+ * 동시에 처리 중인 페이지 수를 제한하여 페이지 수와 무관하게 메모리 사용량을 일정하게 유지합니다.
+ */
+@Service
+public class PdfOcrService {
+
+    @Autowired
+    private ClovaOcrService clovaOcrService;
+
+    /**
+     * 요청 하나에서 동시에 OCR 처리할 최대 페이지 수
+     * 렌더링된 페이지 이미지도 이 수만큼만 메모리에 유지됩니다.
+     */
+    @Value("${pdf.ocr.concurrency:4}")
+    private int concurrency;
+
+    /**
+     * 전체 요청이 공유하는 OCR 작업 스레드 수
+     */
+    @Value("${pdf.ocr.thread-pool-size:8}")
+    private int threadPoolSize;
+
+    /**
+     * 페이지 렌더링 해상도 (DPI)
+     */
+    @Value("${pdf.ocr.render-dpi:150}")
+    private float renderDpi;
+
+    /**
+     * 처리 가능한 최대 페이지 수
+     */
+    @Value("${pdf.ocr.max-pages:200}")
+    private int maxPages;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newFixedThreadPool(threadPoolSize, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-ocr");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 업로드된 파일이 PDF인지 확인합니다.
+     */
+    public static boolean isPdf(MultipartFile file) {
+        String contentType = file.getContentType();
+        String fileName = file.getOriginalFilename();
+        return "application/pdf".equals(contentType)
+                || (fileName != null && fileName.toLowerCase().endsWith(".pdf"));
+    }
+
+    /**
+     * PDF의 모든 페이지를 OCR 처리하고, 페이지 결과를 완료되는 순서대로 전달합니다.
+     *
+     * 페이지 결과에는 page(1부터 시작), width, height(렌더링 픽셀 기준),
+     * extractedTexts, textBoxes가 담기며, 실패한 페이지는 page와 error만 담깁니다.
+     * 리스너 호출은 직렬화되므로 리스너에서 별도로 동기화할 필요가 없습니다.
+     * 이 메서드가 반환하거나 예외를 던진 뒤에는 리스너가 더 이상 호출되지 않습니다.
+     * 현재 스레드에 마감 시각이 활성화되어 있으면 페이지별 OCR 호출에 전달하고,
+     * 마감 시각이 지나면 남은 페이지를 처리하지 않고 DeadlineExceededException을 던집니다.
+     *
+     * @param pdfFile PDF 파일
+     * @param pageListener 페이지 결과를 받을 리스너
+     * @return 전체 페이지 수
+     */
+    public int processPdf(File pdfFile, Consumer<Map<String, Object>> pageListener) throws IOException {
+        Object listenerLock = new Object();
+        AtomicBoolean listenerClosed = new AtomicBoolean();
+
+        try (PDDocument document = Loader.loadPDF(pdfFile, IOUtils.createTempFileOnlyStreamCache())) {
+            int pageCount = document.getNumberOfPages();
+            if (pageCount > maxPages) {
+                throw new IllegalArgumentException("PDF 페이지 수가 너무 많습니다. (최대 " + maxPages + "페이지)");
+            }
+
+            // PDFRenderer는 스레드 안전하지 않으므로 렌더링은 호출 스레드에서 순서대로 수행하고,
+            // OCR 호출만 병렬로 처리합니다. 세마포어로 렌더링된 페이지가 쌓이지 않도록 막습니다.
+            PDFRenderer renderer = new PDFRenderer(document);
+            Semaphore permits = new Semaphore(concurrency);
+            List<Future<?>> futures = new ArrayList<>();
+            boolean completed = false;
+
+            try {
+                for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                    permits.acquire();
+
+                    // 요청 시간 예산을 다 쓰면 남은 페이지는 렌더링하지 않습니다.
+                    Deadline deadline = Deadline.current();
+                    if (deadline != null && deadline.isExpired()) {
+                        permits.release();
+                        throw new DeadlineExceededException("요청 처리 시간을 초과하여 " + (pageIndex + 1) + "페이지부터는 처리하지 못했습니다.");
+                    }
+
+                    int pageNumber = pageIndex + 1;
+                    byte[] pngBytes;
+                    int width;
+                    int height;
+                    try {
+                        BufferedImage image = renderer.renderImageWithDPI(pageIndex, renderDpi, ImageType.RGB);
+                        width = image.getWidth();
+                        height = image.getHeight();
+                        pngBytes = encodePng(image);
+                    } catch (IOException | RuntimeException e) {
+                        permits.release();
+                        throw e;
+                    }
+
+                    futures.add(executor.submit(Deadline.wrap(Trace.wrap(() -> {
+                        Map<String, Object> pageResult;
+                        try {
+                            pageResult = new HashMap<>(clovaOcrService.extractTextFromImage(
+                                    pngBytes, "page-" + pageNumber + ".png", "image/png"));
+                            pageResult.put("page", pageNumber);
+                            pageResult.put("width", width);
+                            pageResult.put("height", height);
+                        } catch (Exception e) {
+                            pageResult = new HashMap<>();
+                            pageResult.put("page", pageNumber);
+                            pageResult.put("error", e.getMessage());
+                        } finally {
+                            permits.release();
+                        }
+                        synchronized (listenerLock) {
+                            if (!listenerClosed.get()) {
+                                pageListener.accept(pageResult);
+                            }
+                        }
+                    }))));
+                }
+
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                completed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("PDF 처리가 중단되었습니다.", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IOException("PDF 페이지 처리 중 오류가 발생했습니다: " + cause.getMessage(), cause);
+            } finally {
+                if (!completed) {
+                    // 렌더링 실패, 중단 등으로 끝나면 남은 페이지 작업을 취소하고,
+                    // 진행 중인 리스너 호출이 끝나기를 기다린 뒤 이후 결과는 버립니다.
+                    // (호출한 쪽이 마지막 줄을 쓴 뒤에 페이지 결과가 끼어들지 않도록 합니다.)
+                    futures.forEach(future -> future.cancel(true));
+                    synchronized (listenerLock) {
+                        listenerClosed.set(true);
+                    }
+                }
+            }
+
+            return pageCount;
+        }
+    }
+
+    /**
+     * PDF의 모든 페이지에서 텍스트를 추출하여 페이지 순서대로 합친 OCR 결과를 반환합니다.
+     * 결과에는 extractedTexts와 메뉴 분석용 menuLines가 담기며,
+     * 실패한 페이지가 있으면 첫 번째 오류를 예외로 전달합니다.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> extractText(File pdfFile) throws IOException {
+        Map<Integer, Map<String, Object>> resultsByPage = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+
+        int pageCount = processPdf(pdfFile, pageResult -> {
+            int page = (Integer) pageResult.get("page");
+            if (pageResult.containsKey("error")) {
+                errors.add(page + "페이지: " + pageResult.get("error"));
+                return;
+            }
+            resultsByPage.put(page, pageResult);
+        });
+
+        if (!errors.isEmpty()) {
+            throw new RuntimeException("PDF OCR 처리 실패 - " + errors.get(0));
+        }
+
+        List<String> extractedTexts = new ArrayList<>();
+        List<String> menuLines = new ArrayList<>();
+        for (int page = 1; page <= pageCount; page++) {
+            Map<String, Object> pageResult = resultsByPage.getOrDefault(page, Map.of());
+            extractedTexts.addAll((List<String>) pageResult.getOrDefault("extractedTexts", List.of()));
+            menuLines.addAll((List<String>) pageResult.getOrDefault("menuLines", List.of()));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("extractedTexts", extractedTexts);
+        result.put("menuLines", menuLines);
+        return result;
+    }
+
+    /**
+     * PDF의 한 페이지를 OCR과 같은 해상도의 PNG 이미지로 렌더링합니다.
+     * 결과 화면에서 페이지별 하이라이트를 표시할 때 사용합니다.
+     *
+     * @param pdfFile PDF 파일
+     * @param pageNumber 페이지 번호 (1부터 시작)
+     */
+    public byte[] renderPage(File pdfFile, int pageNumber) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdfFile, IOUtils.createTempFileOnlyStreamCache())) {
+            if (pageNumber < 1 || pageNumber > document.getNumberOfPages()) {
+                throw new IllegalArgumentException("존재하지 않는 페이지입니다: " + pageNumber);
+            }
+            BufferedImage image = new PDFRenderer(document).renderImageWithDPI(pageNumber - 1, renderDpi, ImageType.RGB);
+            return encodePng(image);
+        }
+    }
+
+    private byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.ocr_test.service;
+
+/**
+ * 업로드 거절
+ *
+ * 지원하지 않는 형식, 최대 크기 초과, 중간에 끊긴 업로드처럼 클라이언트가 보낸 본문의 문제를 나타냅니다.
+ * 외부 API 실패가 아니므로 {@link com.example.ocr_test.resilience.UpstreamCaller}는 다시 시도하지 않습니다.
+ */
+public class UploadRejectedException extends RuntimeException {
+
+    private final int statusCode;
+
+    public UploadRejectedException(String message, int statusCode) {
+        this(message, statusCode, null);
+    }
+
+    public UploadRejectedException(String message, int statusCode, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * 클라이언트에 돌려줄 HTTP 응답 상태 코드 (400, 413, 415)
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ocr_test.trace;
+
+import java.util.regex.Pattern;
+
+/**
+ * 로그 출력용 문자열 정리 도구
+ *
+ * 큰 응답 본문은 앞부분만 남기고, URL에 포함된 API 키는 가립니다.
+ */
+public final class LogSanitizer {
+
+    private static final Pattern SECRET_QUERY_PARAM = Pattern.compile("(?i)([?&](?:key|api_key|apikey|token)=)[^&\\s]+");
+
+    private LogSanitizer() {
+    }
+
+    /**
+     * 최대 길이를 넘는 문자열을 자르고 원래 길이를 덧붙입니다.
+     */
+    public static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength) + "...(" + value.length() + " chars)";
+    }
+
+    /**
+     * URL 쿼리 파라미터의 API 키 값을 가립니다.
+     */
+    public static String redactUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        return SECRET_QUERY_PARAM.matcher(url).replaceAll("$1***");
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.ocr_test.trace;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * 샘플링되지 않은 요청의 INFO 이하 로그를 버리는 Logback 필터
+ *
+ * WARN 이상과 요청 밖(기동, 배치 등)에서 남긴 로그는 항상 통과시킵니다.
+ * logback-spring.xml의 비동기 appender 앞단에 걸어 큐에 들어가기 전에 걸러냅니다.
+ */
+public class SampledLogFilter extends Filter<ILoggingEvent> {
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (event.getLevel().isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        String sampled = event.getMDCPropertyMap().get(Trace.MDC_SAMPLED);
+        return "false".equals(sampled) ? FilterReply.DENY : FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.ocr_test.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 처리 구간 기록
+ *
+ * 구간 이름, 소요 시간, 페이로드 크기 같은 태그를 구조화된 로그 한 줄로 남깁니다.
+ * 샘플링된 추적의 구간만 기록하며, 오류가 표시된 구간은 샘플링과 관계없이 WARN으로 기록합니다.
+ * 보조 요청(hedging)처럼 여러 스레드가 같은 구간에 태그를 남길 수 있어 동기화합니다.
+ */
+public final class Span implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Span.class);
+
+    static final Span NOOP = new Span(null, null);
+
+    private final String name;
+    private final Trace trace;
+    private final long startNanos;
+    private Map<String, Object> tags;
+    private String error;
+
+    Span(String name, Trace trace) {
+        this.name = name;
+        this.trace = trace;
+        this.startNanos = trace != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 구간에 태그를 추가합니다. (예: requestBytes, status)
+     */
+    public synchronized Span tag(String key, Object value) {
+        if (trace != null) {
+            if (tags == null) {
+                tags = new LinkedHashMap<>();
+            }
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * 구간을 실패로 표시합니다.
+     */
+    public synchronized Span error(Throwable throwable) {
+        if (trace != null) {
+            error = LogSanitizer.truncate(String.valueOf(throwable.getMessage()), 200);
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (trace == null || (error == null && !trace.isSampled())) {
+            return;
+        }
+
+        long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        LoggingEventBuilder event = (error != null ? log.atWarn() : log.atInfo())
+                .addKeyValue("span", name)
+                .addKeyValue("durationMs", durationMillis);
+        if (tags != null) {
+            tags.forEach(event::addKeyValue);
+        }
+        if (error != null) {
+            event = event.addKeyValue("error", error);
+        }
+        event.log("span {} {}ms", name, durationMillis);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.ocr_test.trace;
+
+import org.slf4j.MDC;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * 요청 단위 추적 컨텍스트
+ *
+ * 요청마다 추적 ID와 샘플링 여부를 정하고, 현재 스레드에 활성화하여
+ * 로그(MDC)와 구간(Span) 기록, 외부 API 호출 헤더에 같은 ID를 사용할 수 있도록 합니다.
+ * 다른 스레드로 작업을 넘길 때는 {@link #wrap(Callable)}으로 컨텍스트를 함께 전달합니다.
+ *
+ * 추적이 꺼져 있거나 활성화된 추적이 없으면 모든 메서드는 아무 일도 하지 않습니다.
+ */
+public final class Trace {
+
+    public static final String MDC_TRACE_ID = "traceId";
+    public static final String MDC_SAMPLED = "sampled";
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final Scope NOOP_SCOPE = () -> { };
+
+    private static volatile boolean enabled = true;
+    private static volatile double sampleRate = 0.1;
+
+    private final String traceId;
+    private final boolean sampled;
+
+    private Trace(String traceId, boolean sampled) {
+        this.traceId = traceId;
+        this.sampled = sampled;
+    }
+
+    /**
+     * 추적 사용 여부와 샘플링 비율을 설정합니다.
+     */
+    public static void configure(boolean enabled, double sampleRate) {
+        Trace.enabled = enabled;
+        Trace.sampleRate = sampleRate;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 새 추적을 만듭니다. 아직 활성화되지는 않습니다.
+     *
+     * @param requestedId 클라이언트가 전달한 추적 ID (형식이 올바르지 않거나 없으면 새로 생성)
+     * @return 새 추적, 추적이 꺼져 있으면 null
+     */
+    public static Trace newTrace(String requestedId) {
+        if (!enabled) {
+            return null;
+        }
+        String traceId = requestedId != null && VALID_ID.matcher(requestedId).matches()
+                ? requestedId
+                : Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        boolean sampled = ThreadLocalRandom.current().nextDouble() < sampleRate;
+        return new Trace(traceId, sampled);
+    }
+
+    /**
+     * 현재 스레드에 활성화된 추적을 반환합니다.
+     */
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 현재 추적 ID를 반환합니다. 없으면 null을 반환합니다.
+     */
+    public static String currentId() {
+        Trace trace = CURRENT.get();
+        return trace != null ? trace.traceId : null;
+    }
+
+    /**
+     * 현재 추적 아래에 새 구간을 시작합니다.
+     * try-with-resources로 닫으면 소요 시간과 태그가 기록됩니다.
+     */
+    public static Span span(String name) {
+        Trace trace = CURRENT.get();
+        return trace != null ? new Span(name, trace) : Span.NOOP;
+    }
+
+    /**
+     * 추적을 현재 스레드에 활성화합니다. trace가 null이면 아무 일도 하지 않습니다.
+     * 반환된 Scope를 닫으면 이전 상태로 돌아갑니다.
+     */
+    public static Scope activate(Trace trace) {
+        if (trace == null) {
+            return NOOP_SCOPE;
+        }
+
+        Trace previous = CURRENT.get();
+        CURRENT.set(trace);
+        MDC.put(MDC_TRACE_ID, trace.traceId);
+        MDC.put(MDC_SAMPLED, String.valueOf(trace.sampled));
+
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+                MDC.remove(MDC_TRACE_ID);
+                MDC.remove(MDC_SAMPLED);
+            } else {
+                CURRENT.set(previous);
+                MDC.put(MDC_TRACE_ID, previous.traceId);
+                MDC.put(MDC_SAMPLED, String.valueOf(previous.sampled));
+            }
+        };
+    }
+
+    /**
+     * 현재 추적을 다른 스레드에서 실행될 작업에 전달합니다.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope scope = activate(trace)) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * 현재 추적을 다른 스레드에서 실행될 작업에 전달합니다.
+     */
+    public static Runnable wrap(Runnable task) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope scope = activate(trace)) {
+                task.run();
+            }
+        };
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * 활성화 범위. 닫으면 이전 추적 컨텍스트로 돌아갑니다.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.ocr_test.trace;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 요청 추적 필터
+ *
+ * 들어오는 요청마다 추적을 시작하여 요청 처리 스레드에 활성화하고,
+ * 요청 전체를 하나의 구간으로 기록합니다. 추적 ID는 X-Trace-Id 응답 헤더로 돌려줍니다.
+ * 비동기(스트리밍) 응답은 응답 쓰기가 끝날 때 구간을 닫습니다.
+ */
+@Component
+public class TraceFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    @Value("${tracing.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 구간/INFO 로그를 남길 요청 비율 (0.0 ~ 1.0)
+     */
+    @Value("${tracing.sample-rate:0.1}")
+    private double sampleRate;
+
+    @PostConstruct
+    void configure() {
+        Trace.configure(enabled, sampleRate);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Trace trace = Trace.newTrace(request.getHeader(TRACE_ID_HEADER));
+        if (trace == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setHeader(TRACE_ID_HEADER, trace.getTraceId());
+        try (Trace.Scope scope = Trace.activate(trace)) {
+            Span span = Trace.span("http");
+            span.tag("method", request.getMethod())
+                .tag("path", request.getRequestURI())
+                .tag("requestBytes", request.getContentLengthLong());
+            boolean async = false;
+            try {
+                filterChain.doFilter(request, response);
+                if (request.isAsyncStarted()) {
+                    // 스트리밍 응답(StreamingResponseBody 등)은 필터 체인이 돌아온 뒤에도 계속 쓰이므로
+                    // 비동기 처리가 끝날 때 구간을 닫습니다.
+                    request.getAsyncContext().addListener(new SpanClosingListener(span, response));
+                    async = true;
+                }
+            } catch (IOException | ServletException | RuntimeException e) {
+                span.error(e);
+                throw e;
+            } finally {
+                if (!async) {
+                    span.tag("status", response.getStatus());
+                    span.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 비동기 처리가 끝나면 http 구간을 닫습니다.
+     * 오류나 타임아웃이 나도 onComplete는 항상 마지막에 한 번 호출되므로 거기서만 닫습니다.
+     */
+    private static final class SpanClosingListener implements AsyncListener {
+        private final Span span;
+        private final HttpServletResponse response;
+
+        SpanClosingListener(Span span, HttpServletResponse response) {
+            this.span = span;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            span.tag("status", response.getStatus());
+            span.close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            span.tag("timeout", true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            span.error(event.getThrowable());
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 비동기 처리가 다시 시작되면 새 컨텍스트에도 등록합니다.
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -89,8 +89,8 @@ function handleFileSelect(file) {
     if (!fileInput || !fileName || !fileSize || !fileInfo) return;
 
     // 파일 유효성 검사
-    if (!file.type.startsWith('image/')) {
-        showToast('이미지 파일만 업로드 가능합니다.', 'error');
+    if (!file.type.startsWith('image/') && file.type !== 'application/pdf') {
+        showToast('이미지 또는 PDF 파일만 업로드 가능합니다.', 'error');
         return;
     }
 
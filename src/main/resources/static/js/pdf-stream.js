@@ -0,0 +1,147 @@
+/**
+ * PDF 메뉴판 스트리밍 OCR 결과 표시
+ *
+ * /upload-pdf 의 NDJSON 응답을 읽으면서 페이지 결과가 도착하는 대로 화면에 추가합니다.
+ * 각 페이지는 렌더링된 페이지 이미지와 텍스트 목록을 가지며,
+ * 텍스트를 클릭하면 해당 페이지 이미지 위에 위치를 하이라이트합니다.
+ */
+
+/**
+ * PDF 파일을 업로드하고 스트리밍 결과를 container 에 표시합니다.
+ */
+async function uploadPdfWithStreaming(file, container, onFinish) {
+    container.innerHTML = '';
+    container.style.display = 'block';
+
+    const status = document.createElement('div');
+    status.className = 'alert alert-info';
+    status.textContent = 'PDF 페이지를 처리하는 중입니다...';
+    container.appendChild(status);
+
+    const formData = new FormData();
+    formData.append('imageFile', file);
+
+    let completedPages = 0;
+    try {
+        const response = await fetch('/upload-pdf', { method: 'POST', body: formData });
+        if (!response.ok || !response.body) {
+            throw new Error('업로드 실패 (' + response.status + ')');
+        }
+
+        const reader = response.body.getReader();
+        const decoder = new TextDecoder();
+        let buffer = '';
+
+        while (true) {
+            const { done, value } = await reader.read();
+            if (done) break;
+
+            buffer += decoder.decode(value, { stream: true });
+            let newlineIndex;
+            while ((newlineIndex = buffer.indexOf('\n')) >= 0) {
+                const line = buffer.slice(0, newlineIndex).trim();
+                buffer = buffer.slice(newlineIndex + 1);
+                if (!line) continue;
+
+                const message = JSON.parse(line);
+                if (message.page !== undefined) {
+                    completedPages++;
+                    status.textContent = completedPages + '개 페이지 처리 완료...';
+                    insertPageResult(container, message);
+                } else if (message.done) {
+                    if (message.error) {
+                        status.className = 'alert alert-danger';
+                        status.textContent = message.error;
+                    } else {
+                        status.className = 'alert alert-success';
+                        status.textContent = '총 ' + message.pageCount + '페이지 처리를 완료했습니다.';
+                    }
+                }
+            }
+        }
+    } catch (error) {
+        status.className = 'alert alert-danger';
+        status.textContent = 'PDF 처리 중 오류가 발생했습니다: ' + error.message;
+    } finally {
+        if (onFinish) onFinish();
+    }
+}
+
+/**
+ * 페이지 결과 카드를 페이지 번호 순서에 맞는 위치에 추가합니다.
+ */
+function insertPageResult(container, pageResult) {
+    const card = document.createElement('div');
+    card.className = 'card mt-3';
+    card.dataset.page = pageResult.page;
+
+    const header = document.createElement('div');
+    header.className = 'card-header';
+    header.textContent = pageResult.page + '페이지';
+    card.appendChild(header);
+
+    const body = document.createElement('div');
+    body.className = 'card-body';
+    card.appendChild(body);
+
+    if (pageResult.error) {
+        body.innerHTML = '<div class="alert alert-danger mb-0"></div>';
+        body.firstChild.textContent = pageResult.error;
+    } else {
+        renderPageBody(body, pageResult);
+    }
+
+    // 페이지는 완료 순서대로 도착하므로 페이지 번호 순서를 유지하도록 삽입합니다.
+    const next = Array.from(container.querySelectorAll('.card[data-page]'))
+        .find(existing => Number(existing.dataset.page) > pageResult.page);
+    container.insertBefore(card, next || null);
+}
+
+function renderPageBody(body, pageResult) {
+    const imageWrapper = document.createElement('div');
+    imageWrapper.style.position = 'relative';
+    imageWrapper.className = 'mb-3';
+
+    const image = document.createElement('img');
+    image.src = pageResult.imageUrl;
+    image.alt = pageResult.page + '페이지';
+    image.loading = 'lazy';
+    image.style.width = '100%';
+    imageWrapper.appendChild(image);
+
+    const highlight = document.createElement('div');
+    highlight.style.cssText = 'position:absolute;border:2px solid #ff0000;background:rgba(255,0,0,0.15);display:none;pointer-events:none;';
+    imageWrapper.appendChild(highlight);
+    body.appendChild(imageWrapper);
+
+    const list = document.createElement('ul');
+    list.className = 'list-group';
+    (pageResult.textBoxes || []).forEach(textBox => {
+        const item = document.createElement('li');
+        item.className = 'list-group-item list-group-item-action';
+        item.style.cursor = 'pointer';
+        item.textContent = textBox.text;
+        item.addEventListener('click', () => highlightBox(image, highlight, textBox.vertices, pageResult));
+        list.appendChild(item);
+    });
+    body.appendChild(list);
+}
+
+/**
+ * OCR 좌표(렌더링 픽셀 기준)를 화면에 표시된 이미지 크기에 맞게 변환하여 하이라이트합니다.
+ */
+function highlightBox(image, highlight, vertices, pageResult) {
+    if (!vertices || vertices.length < 4) return;
+
+    const scaleX = image.clientWidth / pageResult.width;
+    const scaleY = image.clientHeight / pageResult.height;
+    const xs = vertices.map(v => v.x);
+    const ys = vertices.map(v => v.y);
+
+    highlight.style.left = (Math.min(...xs) * scaleX) + 'px';
+    highlight.style.top = (Math.min(...ys) * scaleY) + 'px';
+    highlight.style.width = ((Math.max(...xs) - Math.min(...xs)) * scaleX) + 'px';
+    highlight.style.height = ((Math.max(...ys) - Math.min(...ys)) * scaleY) + 'px';
+    highlight.style.display = 'block';
+    highlight.scrollIntoView({ behavior: 'smooth', block: 'center' });
+}
@@ -0,0 +1,132 @@
+package com.example.ocr_test.batch;
+
+import com.example.ocr_test.service.ClovaOcrService;
+import com.example.ocr_test.service.OpenAIService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 임시 디렉토리의 이미지로 파이프라인 전체를 돌려 결과 줄과 체크포인트를 확인합니다.
+ */
+class MenuBatchRunnerTest {
+
+    @TempDir
+    Path inputDir;
+
+    private final Set<String> ocrFiles = ConcurrentHashMap.newKeySet();
+    private MenuBatchRunner runner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.write(inputDir.resolve("a.jpg"), new byte[50]);
+        Files.write(inputDir.resolve("b.png"), new byte[50]);
+        // OCR 단계에서 Error가 나는 파일
+        Files.write(inputDir.resolve("crash.jpg"), new byte[50]);
+        // 읽기 단계에서 크기 제한에 걸리는 파일
+        Files.write(inputDir.resolve("huge.jpg"), new byte[500]);
+        Files.writeString(inputDir.resolve("notes.txt"), "이미지가 아닌 파일");
+
+        runner = new MenuBatchRunner();
+        ReflectionTestUtils.setField(runner, "clovaOcrService", new StubClovaOcrService());
+        ReflectionTestUtils.setField(runner, "openAIService", new StubOpenAIService());
+        ReflectionTestUtils.setField(runner, "inputDir", inputDir.toString());
+        ReflectionTestUtils.setField(runner, "outputFile", "");
+        ReflectionTestUtils.setField(runner, "readConcurrency", 2);
+        ReflectionTestUtils.setField(runner, "ocrConcurrency", 2);
+        ReflectionTestUtils.setField(runner, "llmConcurrency", 1);
+        ReflectionTestUtils.setField(runner, "queueCapacity", 1);
+        ReflectionTestUtils.setField(runner, "analyzeMenu", true);
+        ReflectionTestUtils.setField(runner, "maxFileBytes", 100L);
+    }
+
+    @Test
+    void writesOneLinePerFileEvenWhenStageThrowsError() throws Exception {
+        runner.run();
+
+        Map<String, JsonNode> results = readResults();
+        assertEquals(Set.of("a.jpg", "b.png", "crash.jpg", "huge.jpg"), results.keySet());
+
+        assertEquals("ok", results.get("a.jpg").path("status").asText());
+        assertEquals("a.jpg 메뉴", results.get("a.jpg").path("menuItems").path(0).asText());
+
+        JsonNode crash = results.get("crash.jpg");
+        assertEquals("error", crash.path("status").asText());
+        assertEquals("ocr", crash.path("stage").asText());
+        assertEquals("Java heap space", crash.path("error").asText());
+
+        JsonNode huge = results.get("huge.jpg");
+        assertEquals("read", huge.path("stage").asText());
+        assertTrue(huge.path("error").asText().startsWith("파일이 너무 큽니다: 500 bytes"));
+
+        // 성공한 파일만 체크포인트에 남습니다.
+        assertEquals(Set.of("a.jpg", "b.png"), Set.copyOf(readLines("menu-results.jsonl.checkpoint")));
+    }
+
+    @Test
+    void retriesOnlyFailedFilesOnRerun() throws Exception {
+        runner.run();
+        ocrFiles.clear();
+
+        runner.run();
+
+        // 두 번째 실행에서는 실패한 파일만 다시 처리합니다. (huge.jpg는 읽기 단계에서 다시 실패)
+        assertEquals(Set.of("crash.jpg"), ocrFiles);
+        assertEquals(6, readLines("menu-results.jsonl").size());
+    }
+
+    private Map<String, JsonNode> readResults() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> results = new HashMap<>();
+        for (String line : readLines("menu-results.jsonl")) {
+            JsonNode result = objectMapper.readTree(line);
+            results.put(result.path("file").asText(), result);
+        }
+        return results;
+    }
+
+    private List<String> readLines(String fileName) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(inputDir.resolve(fileName), StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private final class StubClovaOcrService extends ClovaOcrService {
+        @Override
+        public Map<String, Object> extractTextFromImage(byte[] imageBytes, String fileName, String contentType) {
+            ocrFiles.add(fileName);
+            if (fileName.equals("crash.jpg")) {
+                throw new OutOfMemoryError("Java heap space");
+            }
+            return Map.of("extractedTexts", List.of(fileName), "menuLines", List.of(fileName));
+        }
+    }
+
+    private static final class StubOpenAIService extends OpenAIService {
+        @Override
+        public List<String> analyzeMenuItems(List<String> extractedTexts) {
+            return List.of(extractedTexts.get(0) + " 메뉴");
+        }
+    }
+}
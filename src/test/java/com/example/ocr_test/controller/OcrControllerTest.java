@@ -0,0 +1,211 @@
+package com.example.ocr_test.controller;
+
+import com.example.ocr_test.resilience.Deadline;
+import com.example.ocr_test.service.PdfOcrService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OcrControllerTest {
+
+    private OcrController controller;
+    private StubPdfOcrService pdfOcrService;
+
+    @BeforeEach
+    void setUp() {
+        controller = new OcrController();
+        pdfOcrService = new StubPdfOcrService();
+        ReflectionTestUtils.setField(controller, "streamMaxBytes", 1024L * 1024);
+        ReflectionTestUtils.setField(controller, "pdfOcrService", pdfOcrService);
+        ReflectionTestUtils.setField(controller, "pdfPageRetentionMillis", 100L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(controller, "deletePdfs");
+    }
+
+    @Test
+    void rejectsFormEncodedStreamUploadWithoutReadingBody() throws IOException {
+        byte[] body = "fileName=menu.jpg&data=xyz".getBytes(StandardCharsets.US_ASCII);
+        MockHttpServletRequest request = streamRequest("application/x-www-form-urlencoded", body);
+
+        ResponseEntity<Map<String, Object>> response = controller.streamOcr(request);
+
+        assertEquals(415, response.getStatusCode().value());
+        assertTrue(String.valueOf(response.getBody().get("error")).contains("Content-Type"));
+        assertArrayEquals(body, request.getInputStream().readAllBytes());
+    }
+
+    @Test
+    void rejectsMissingContentType() {
+        MockHttpServletRequest request = streamRequest(null, new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF});
+
+        assertEquals(415, controller.streamOcr(request).getStatusCode().value());
+    }
+
+    @Test
+    void rejectsPdfBodyEvenWithImageContentType() {
+        MockHttpServletRequest request = streamRequest("image/jpeg", "%PDF-1.7\n...".getBytes(StandardCharsets.US_ASCII));
+
+        ResponseEntity<Map<String, Object>> response = controller.streamOcr(request);
+
+        assertEquals(415, response.getStatusCode().value());
+        assertTrue(String.valueOf(response.getBody().get("error")).contains("/upload-pdf"));
+    }
+
+    @Test
+    void streamsPdfPagesAsNdjsonAndRemovesFileAfterRetention() throws Exception {
+        pdfOcrService.pageOrder = List.of(2, 1);
+
+        List<JsonNode> lines = streamPdf();
+
+        assertEquals("menu.pdf", lines.get(0).path("fileName").asText());
+        String pdfId = lines.get(0).path("pdfId").asText();
+        assertEquals(2, lines.get(1).path("page").asInt());
+        assertEquals("/pdf/" + pdfId + "/page/2", lines.get(1).path("imageUrl").asText());
+        assertEquals(1, lines.get(2).path("page").asInt());
+        assertTrue(lines.get(3).path("done").asBoolean());
+        assertEquals(2, lines.get(3).path("pageCount").asInt());
+        assertEquals(4, lines.size());
+
+        // 페이지 이미지를 받을 수 있도록 보관 시간 동안은 파일을 남겨 둡니다.
+        Path pdfPath = pdfOcrService.pdfFile.toPath();
+        assertTrue(Files.exists(pdfPath));
+        assertNotNull(pdfStorage().get(pdfId));
+        waitUntil(() -> !Files.exists(pdfPath));
+        assertTrue(pdfStorage().isEmpty());
+    }
+
+    @Test
+    void endsPdfStreamWithErrorLineWhenProcessingFails() throws Exception {
+        pdfOcrService.pageOrder = List.of(1);
+        pdfOcrService.failure = new IOException("손상된 PDF");
+
+        List<JsonNode> lines = streamPdf();
+
+        JsonNode last = lines.get(lines.size() - 1);
+        assertTrue(last.path("done").asBoolean());
+        assertEquals("PDF 처리 중 오류가 발생했습니다: 손상된 PDF", last.path("error").asText());
+        waitUntil(() -> pdfStorage().isEmpty());
+    }
+
+    @Test
+    void carriesRequestDeadlineToStreamingThread() throws Exception {
+        pdfOcrService.pageOrder = List.of(1);
+        Deadline deadline = Deadline.after(10_000);
+
+        StreamingResponseBody body;
+        try (Deadline.Scope scope = Deadline.activate(deadline)) {
+            body = controller.uploadPdf(pdfUpload()).getBody();
+        }
+        // 스트리밍은 요청 처리 스레드가 아닌 다른 스레드에서 진행됩니다.
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                body.writeTo(new ByteArrayOutputStream());
+                return null;
+            }).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(deadline, pdfOcrService.deadline);
+    }
+
+    private List<JsonNode> streamPdf() throws IOException {
+        StreamingResponseBody body = controller.uploadPdf(pdfUpload()).getBody();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        body.writeTo(output);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Path> pdfStorage() {
+        return (Map<String, Path>) ReflectionTestUtils.getField(controller, "pdfStorage");
+    }
+
+    private static MockMultipartFile pdfUpload() {
+        return new MockMultipartFile("imageFile", "menu.pdf", "application/pdf",
+                "%PDF-1.7\n...".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (!condition.getAsBoolean()) {
+            assertFalse(System.nanoTime() > deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+
+    private static MockHttpServletRequest streamRequest(String contentType, byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/ocr/stream");
+        request.setQueryString("fileName=menu.jpg");
+        if (contentType != null) {
+            request.setContentType(contentType);
+        }
+        request.setContent(body);
+        return request;
+    }
+
+    /**
+     * 정해진 순서로 페이지 결과를 전달하는 PDF 서비스
+     */
+    private static final class StubPdfOcrService extends PdfOcrService {
+        private volatile List<Integer> pageOrder = List.of();
+        private volatile IOException failure;
+        private volatile File pdfFile;
+        private volatile Deadline deadline;
+
+        @Override
+        public int processPdf(File pdfFile, Consumer<Map<String, Object>> pageListener) throws IOException {
+            this.pdfFile = pdfFile;
+            this.deadline = Deadline.current();
+            for (int page : pageOrder) {
+                Map<String, Object> pageResult = new HashMap<>();
+                pageResult.put("page", page);
+                pageResult.put("extractedTexts", List.of("page-" + page));
+                pageListener.accept(pageResult);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return pageOrder.size();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.ocr_test.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CredentialPoolTest {
+
+    @Test
+    void spreadsInFlightRequestsByWeight() {
+        CredentialPool pool = CredentialPool.of("test", "test.api", "key-a,key-b", "", "2,1", 1000);
+
+        List<String> secrets = new ArrayList<>();
+        List<CredentialPool.Lease> leases = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            CredentialPool.Lease lease = pool.acquire();
+            secrets.add(lease.secret());
+            leases.add(lease);
+        }
+
+        assertEquals(List.of("key-a", "key-b", "key-a", "key-a", "key-b", "key-a"), secrets);
+
+        // 끝난 요청이 많은 키로 다음 요청이 갑니다.
+        leases.get(1).close();
+        leases.get(4).close();
+        assertEquals("key-b", pool.acquire().secret());
+    }
+
+    @Test
+    void skipsThrottledKeyForRetryAfter() {
+        CredentialPool pool = CredentialPool.of("test", "test.api", "key-a,key-b", "", "", 1000);
+
+        try (CredentialPool.Lease lease = pool.acquire()) {
+            assertEquals("key-a", lease.secret());
+            lease.recordResponse(429, "60");
+        }
+
+        for (int i = 0; i < 3; i++) {
+            try (CredentialPool.Lease lease = pool.acquire()) {
+                assertEquals("key-b", lease.secret());
+            }
+        }
+        Map<String, Object> stats = pool.getStats().get(0);
+        assertEquals(true, stats.get("coolingDown"));
+        assertEquals(1L, stats.get("throttled"));
+        assertTrue((long) stats.get("cooldownRemainingMs") > 50_000);
+    }
+
+    @Test
+    void returnsThrottledKeyAfterDefaultCooldown() throws InterruptedException {
+        CredentialPool pool = CredentialPool.of("test", "test.api", "key-a,key-b", "", "", 100);
+
+        try (CredentialPool.Lease lease = pool.acquire()) {
+            lease.recordResponse(429, null);
+        }
+        try (CredentialPool.Lease lease = pool.acquire()) {
+            assertEquals("key-b", lease.secret());
+        }
+
+        Thread.sleep(200);
+
+        assertEquals(false, pool.getStats().get(0).get("coolingDown"));
+        try (CredentialPool.Lease lease = pool.acquire()) {
+            assertEquals("key-a", lease.secret());
+        }
+    }
+
+    @Test
+    void benchesKeyAfterAuthFailure() {
+        CredentialPool pool = CredentialPool.of("test", "test.api", "key-a,key-b", "", "", 100);
+
+        try (CredentialPool.Lease lease = pool.acquire()) {
+            lease.recordResponse(401, null);
+        }
+
+        Map<String, Object> stats = pool.getStats().get(0);
+        assertEquals(1L, stats.get("authFailures"));
+        assertTrue((long) stats.get("cooldownRemainingMs") > CredentialPool.AUTH_COOLDOWN_MILLIS - 10_000);
+        try (CredentialPool.Lease lease = pool.acquire()) {
+            assertEquals("key-b", lease.secret());
+        }
+        assertTrue(pool.isRetryable(401));
+    }
+
+    @Test
+    void usesKeyThatRecoversFirstWhenAllAreCoolingDown() {
+        CredentialPool pool = CredentialPool.of("test", "test.api", "key-a,key-b", "", "", 1000);
+
+        try (CredentialPool.Lease a = pool.acquire(); CredentialPool.Lease b = pool.acquire()) {
+            a.recordResponse(429, "60");
+            b.recordResponse(429, "30");
+        }
+
+        try (CredentialPool.Lease lease = pool.acquire()) {
+            assertEquals("key-b", lease.secret());
+        }
+    }
+
+    @Test
+    void statsDoNotExposeSecretsOrEndpoints() {
+        CredentialPool pool = CredentialPool.of("test", "test.api", "secret-key-1234,secret-key-5678",
+                "https://gateway.example.com/a,https://gateway.example.com/b", "", 1000);
+
+        List<Map<String, Object>> stats = pool.getStats();
+
+        assertEquals("test-1", stats.get(0).get("id"));
+        assertFalse(stats.toString().contains("1234"));
+        assertFalse(stats.toString().contains("gateway.example.com"));
+    }
+
+    @Test
+    void rejectsMismatchedConfiguration() {
+        assertThrows(IllegalStateException.class, () -> CredentialPool.of("test", "test.api", "key-a,key-b", "", "1", 1000));
+        assertThrows(IllegalStateException.class, () -> CredentialPool.of("test", "test.api", "key-a,key-b", "u1,u2,u3", "", 1000));
+        assertThrows(IllegalStateException.class, () -> CredentialPool.of("test", "test.api", "key-a", "", "0", 1000));
+    }
+
+    @Test
+    void rejectsMalformedWeightsNamingTheProperty() {
+        for (String weights : new String[] {"1,x", "1,-2", "1,1.5", "1,0"}) {
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> CredentialPool.of("test", "test.api", "key-a,key-b", "", weights, 1000));
+            assertTrue(e.getMessage().contains("test.api.key-weights"), e.getMessage());
+            assertTrue(e.getMessage().contains(weights.substring(2)), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.ocr_test.resilience;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineTest {
+
+    @Test
+    void sharesRatioOfRemainingTime() {
+        Deadline deadline = Deadline.after(10_000);
+
+        long shared = deadline.share(0.6).remainingMillis();
+        assertTrue(shared <= 6000 && shared > 5800, "shared " + shared);
+        assertSame(deadline, deadline.share(1.0));
+        assertTrue(deadline.share(0).isExpired());
+    }
+
+    @Test
+    void restoresPreviousDeadlineWhenScopeCloses() {
+        Deadline outer = Deadline.after(10_000);
+        Deadline inner = Deadline.after(1_000);
+
+        try (Deadline.Scope outerScope = Deadline.activate(outer)) {
+            try (Deadline.Scope innerScope = Deadline.activate(inner)) {
+                assertSame(inner, Deadline.current());
+            }
+            assertSame(outer, Deadline.current());
+        }
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void wrapCarriesDeadlineToOtherThread() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Deadline deadline = Deadline.after(10_000);
+            try (Deadline.Scope scope = Deadline.activate(deadline)) {
+                assertSame(deadline, executor.submit(Deadline.wrap(Deadline::current)).get(1, TimeUnit.SECONDS));
+                Deadline[] seen = new Deadline[1];
+                executor.submit(Deadline.wrap(() -> {
+                    seen[0] = Deadline.current();
+                })).get(1, TimeUnit.SECONDS);
+                assertSame(deadline, seen[0]);
+            }
+            // 작업이 끝나면 작업 스레드에 마감 시각이 남지 않습니다.
+            assertNull(executor.submit(Deadline::current).get(1, TimeUnit.SECONDS));
+            assertNull(executor.submit(Deadline.wrap(Deadline::current)).get(1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void filterUsesShorterRequestedBudgetOnly() {
+        DeadlineFilter filter = new DeadlineFilter();
+        ReflectionTestUtils.setField(filter, "requestBudgetMillis", 45_000L);
+
+        assertEquals(5_000L, (long) ReflectionTestUtils.invokeMethod(filter, "resolveBudget", "5000"));
+        assertEquals(45_000L, (long) ReflectionTestUtils.invokeMethod(filter, "resolveBudget", "90000"));
+        assertEquals(45_000L, (long) ReflectionTestUtils.invokeMethod(filter, "resolveBudget", "abc"));
+        assertEquals(45_000L, (long) ReflectionTestUtils.invokeMethod(filter, "resolveBudget", (Object) null));
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.ocr_test.resilience;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 로컬 HTTP 서버로 재시도, 백오프, 마감 시각, 보조 요청(hedge) 동작을 확인합니다.
+ */
+class UpstreamCallerTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int failingResponses;
+
+    private UpstreamCaller upstreamCaller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.createContext("/api", exchange -> {
+            int request = requests.incrementAndGet();
+            int status = request <= failingResponses ? 503 : 200;
+            byte[] bytes = (status == 200 ? "ok" : "busy").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        // 헤더를 보낸 뒤 본문을 100ms마다 1바이트씩 3초 동안 보냅니다. 한 번의 read()는 읽기 타임아웃 안에 끝납니다.
+        server.createContext("/drip", exchange -> {
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(200, 30);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 30; i++) {
+                    body.write('.');
+                    body.flush();
+                    Thread.sleep(100);
+                }
+            } catch (IOException | InterruptedException e) {
+                // 클라이언트가 연결을 끊었습니다.
+            }
+        });
+        server.start();
+
+        upstreamCaller = new UpstreamCaller();
+        ReflectionTestUtils.setField(upstreamCaller, "connectTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(upstreamCaller, "readTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(upstreamCaller, "maxAttempts", 3);
+        ReflectionTestUtils.setField(upstreamCaller, "backoffInitialMillis", 10L);
+        ReflectionTestUtils.setField(upstreamCaller, "backoffMaxMillis", 40L);
+        ReflectionTestUtils.invokeMethod(upstreamCaller, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(upstreamCaller, "shutdown");
+        server.stop(0);
+    }
+
+    @Test
+    void retriesRetryableStatusUntilSuccess() throws IOException {
+        failingResponses = 2;
+
+        assertEquals("ok", upstreamCaller.call("test", 1.0, this::get));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        failingResponses = 10;
+
+        UpstreamException e = assertThrows(UpstreamException.class, () -> upstreamCaller.call("test", 1.0, this::get));
+        assertEquals(503, e.getStatusCode());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void doesNotRetryNonRetryableFailure() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(UpstreamException.class, () -> upstreamCaller.call("test", 1.0, timeouts -> {
+            attempts.incrementAndGet();
+            throw new UpstreamException("bad request", 400, false, null);
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void backoffIsFullJitterUnderCappedCeiling() {
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            long ceiling = Math.min(40, 10L << (attempt - 1));
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            for (int i = 0; i < 2000; i++) {
+                long backoff = ReflectionTestUtils.invokeMethod(upstreamCaller, "backoffMillis", attempt);
+                min = Math.min(min, backoff);
+                max = Math.max(max, backoff);
+            }
+            assertTrue(min >= 0 && max <= ceiling, "attempt " + attempt + " range " + min + ".." + max);
+            // 0부터 상한까지 고르게 퍼집니다.
+            assertTrue(min <= ceiling / 4 && max >= ceiling * 3 / 4, "attempt " + attempt + " range " + min + ".." + max);
+        }
+    }
+
+    @Test
+    void refusesToStartWhenBudgetIsNearlySpent() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try (Deadline.Scope scope = Deadline.activate(Deadline.after(150))) {
+            assertThrows(DeadlineExceededException.class, () -> upstreamCaller.call("test", 1.0, timeouts -> {
+                attempts.incrementAndGet();
+                return "ok";
+            }));
+        }
+        assertEquals(0, attempts.get());
+    }
+
+    @Test
+    void stopsRetryingWhenBackoffWouldOutlastBudget() {
+        failingResponses = 10;
+        ReflectionTestUtils.setField(upstreamCaller, "backoffInitialMillis", 5000L);
+        ReflectionTestUtils.setField(upstreamCaller, "backoffMaxMillis", 5000L);
+
+        try (Deadline.Scope scope = Deadline.activate(Deadline.after(1000))) {
+            // 백오프가 0ms로 뽑힐 수도 있으므로 남은 시간 안에서만 다시 시도했는지 확인합니다.
+            long startedAt = System.nanoTime();
+            assertThrows(UpstreamException.class, () -> upstreamCaller.call("test", 1.0, this::get));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 1000);
+        }
+    }
+
+    @Test
+    void givesStageOnlyItsShareOfRemainingBudget() throws IOException {
+        try (Deadline.Scope scope = Deadline.activate(Deadline.after(10_000))) {
+            Timeouts timeouts = upstreamCaller.call("test", 0.05, t -> t);
+
+            // 남은 시간 10초의 5%
+            assertTrue(timeouts.readMillis() <= 500 && timeouts.readMillis() > 400, "read " + timeouts.readMillis());
+            assertTrue(timeouts.connectMillis() <= 500, "connect " + timeouts.connectMillis());
+        }
+    }
+
+    @Test
+    void cutsSlowDripResponseAtDeadline() {
+        long startedAt = System.nanoTime();
+        try (Deadline.Scope scope = Deadline.activate(Deadline.after(800))) {
+            assertThrows(DeadlineExceededException.class, () -> upstreamCaller.call("test", 1.0, timeouts -> read("/drip", timeouts)));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        assertTrue(elapsedMillis < 1500, "elapsed " + elapsedMillis + "ms");
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void usesHedgeWhenFirstAttemptIsSlowAndCancelsTheOther() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch slowAttemptInterrupted = new CountDownLatch(1);
+
+        long startedAt = System.nanoTime();
+        String result = upstreamCaller.call("test", 1.0, 100, timeouts -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    slowAttemptInterrupted.countDown();
+                }
+                return "slow";
+            }
+            return "hedge";
+        });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertTrue(elapsedMillis < 1000, "elapsed " + elapsedMillis + "ms");
+        assertTrue(slowAttemptInterrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void skipsHedgeWhenFirstAttemptAnswersInTime() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("first", upstreamCaller.call("test", 1.0, 500, timeouts -> {
+            attempts.incrementAndGet();
+            return "first";
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void hedgeFallsBackToOtherAttemptWhenOneFails() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("hedge", upstreamCaller.call("test", 1.0, 50, timeouts -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("reset");
+            }
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hedge";
+        }));
+        assertEquals(2, attempts.get());
+    }
+
+    private String get(Timeouts timeouts) throws IOException {
+        return read("/api", timeouts);
+    }
+
+    private String read(String path, Timeouts timeouts) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getAddress().getPort() + path).openConnection();
+        timeouts.applyTo(connection);
+        int status = connection.getResponseCode();
+        try (InputStream body = status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            String text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            if (status != 200) {
+                throw new UpstreamException("status " + status, status, UpstreamException.isRetryableStatus(status), null);
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.ocr_test.service;
+
+import com.example.ocr_test.resilience.UpstreamCaller;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 로컬 HTTP 서버를 클로바 OCR API로 두고 multipart 요청 본문과 스트리밍 업로드 전송을 확인합니다.
+ */
+class ClovaOcrServiceTest {
+
+    private static final String OCR_RESPONSE = """
+            {"images": [{"inferResult": "SUCCESS", "fields": [
+              {"inferText": "김치찌개", "inferConfidence": 0.99,
+               "boundingPoly": {"vertices": [{"x": 10, "y": 10}, {"x": 60, "y": 10}, {"x": 60, "y": 30}, {"x": 10, "y": 30}]}}
+            ]}]}""";
+
+    private HttpServer server;
+    private final List<byte[]> receivedBodies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int failingResponses;
+
+    private UpstreamCaller upstreamCaller;
+    private ClovaOcrService clovaOcrService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ocr", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            receivedBodies.add(body);
+            int request = requests.incrementAndGet();
+            int status = request <= failingResponses ? 500 : 200;
+            byte[] bytes = (status == 200 ? OCR_RESPONSE : "{}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+
+        upstreamCaller = new UpstreamCaller();
+        ReflectionTestUtils.setField(upstreamCaller, "connectTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(upstreamCaller, "readTimeoutMillis", 2000);
+        ReflectionTestUtils.setField(upstreamCaller, "maxAttempts", 3);
+        ReflectionTestUtils.setField(upstreamCaller, "backoffInitialMillis", 10L);
+        ReflectionTestUtils.setField(upstreamCaller, "backoffMaxMillis", 20L);
+        ReflectionTestUtils.invokeMethod(upstreamCaller, "init");
+
+        clovaOcrService = new ClovaOcrService();
+        ReflectionTestUtils.setField(clovaOcrService, "apiUrl", "http://127.0.0.1:" + server.getAddress().getPort() + "/ocr");
+        ReflectionTestUtils.setField(clovaOcrService, "secretKey", "test-secret");
+        ReflectionTestUtils.setField(clovaOcrService, "secretKeys", "");
+        ReflectionTestUtils.setField(clovaOcrService, "apiUrls", "");
+        ReflectionTestUtils.setField(clovaOcrService, "keyWeights", "");
+        ReflectionTestUtils.setField(clovaOcrService, "keyCooldownMillis", 1000L);
+        ReflectionTestUtils.setField(clovaOcrService, "budgetShare", 1.0);
+        ReflectionTestUtils.setField(clovaOcrService, "minConfidence", 0.5);
+        ReflectionTestUtils.setField(clovaOcrService, "upstreamCaller", upstreamCaller);
+        ReflectionTestUtils.invokeMethod(clovaOcrService, "initCredentials");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(upstreamCaller, "shutdown");
+        server.stop(0);
+    }
+
+    @Test
+    void stripsHeaderBreakingCharactersFromFileName() throws IOException {
+        clovaOcrService.extractTextFromImage(jpeg(64), "menu\"\r\nX-Injected: 1\r\n.jpg", "image/jpeg");
+
+        String body = new String(receivedBodies.get(0), StandardCharsets.ISO_8859_1);
+        assertFalse(body.contains("\r\nX-Injected"));
+        assertTrue(body.contains("filename=\"menuX-Injected: 1.jpg\"\r\n"));
+
+        JsonNode message = new ObjectMapper().readTree(messagePart(receivedBodies.get(0)));
+        assertEquals("menuX-Injected: 1.jpg", message.path("images").path(0).path("name").asText());
+        assertEquals("jpg", message.path("images").path(0).path("format").asText());
+    }
+
+    @Test
+    void fallsBackToFormatNameWhenNothingIsLeft() {
+        assertEquals("upload.png", ClovaOcrService.upstreamFileName("\r\n\"/", "png"));
+        assertEquals("upload.jpg", ClovaOcrService.upstreamFileName(null, "jpg"));
+        assertEquals("메뉴판.jpg", ClovaOcrService.upstreamFileName("메뉴판.jpg", "jpg"));
+    }
+
+    @Test
+    void resendsWholeUploadAfterFailedAttempt() throws IOException {
+        failingResponses = 1;
+        byte[] image = jpeg(200_000);
+        ImageUpload upload = ImageUpload.open(new ByteArrayInputStream(image), image.length, 1_000_000);
+
+        Map<String, Object> result = clovaOcrService.extractTextFromUpload(upload, "menu.jpg", ignored -> null);
+
+        assertEquals(List.of("김치찌개"), result.get("extractedTexts"));
+        assertEquals(2, receivedBodies.size());
+        // 두 번째 시도는 클라이언트에서 다시 읽지 않고 받아 둔 본문으로 처음부터 보냅니다.
+        assertTrue(contains(receivedBodies.get(1), image));
+    }
+
+    @Test
+    void dropsUpstreamRequestOnEarlyHit() throws IOException {
+        byte[] image = jpeg(200_000);
+        ImageUpload upload = ImageUpload.open(new ByteArrayInputStream(image), image.length, 1_000_000);
+        Map<String, Object> cached = Map.of("extractedTexts", List.of("이전 결과"));
+
+        Map<String, Object> result = clovaOcrService.extractTextFromUpload(upload, "menu.jpg", ignored -> cached);
+
+        assertSame(cached, result);
+        // 본문을 끝까지 보내지 않고 연결을 끊으므로 클로바 쪽에서 완성된 요청이 되지 않습니다.
+        assertTrue(receivedBodies.isEmpty());
+    }
+
+    private static String messagePart(byte[] body) {
+        String text = new String(body, StandardCharsets.UTF_8);
+        int start = text.indexOf("name=\"message\"");
+        start = text.indexOf("\r\n\r\n", start) + 4;
+        return text.substring(start, text.indexOf("\r\n--", start));
+    }
+
+    private static boolean contains(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[] jpeg(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        bytes[0] = (byte) 0xFF;
+        bytes[1] = (byte) 0xD8;
+        bytes[2] = (byte) 0xFF;
+        return bytes;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.ocr_test.service;
+
+import com.example.ocr_test.resilience.Deadline;
+import com.example.ocr_test.resilience.UpstreamCaller;
+import com.example.ocr_test.resilience.UpstreamException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 로컬 HTTP 서버를 지오코딩 API로 두고 일괄 주소 조회의 중복 제거와 할당량 초과 처리를 확인합니다.
+ */
+class GoogleMapsServiceTest {
+
+    private static final String OK_RESPONSE = """
+            {"status": "OK", "results": [{"formatted_address": "서울특별시 중구 세종대로 110"}]}""";
+
+    private static final String OVER_QUERY_LIMIT_RESPONSE = """
+            {"status": "OVER_QUERY_LIMIT", "results": []}""";
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int overQueryLimitResponses;
+
+    private UpstreamCaller upstreamCaller;
+    private GoogleMapsService googleMapsService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/geocode", exchange -> {
+            int request = requests.incrementAndGet();
+            String body = request <= overQueryLimitResponses ? OVER_QUERY_LIMIT_RESPONSE : OK_RESPONSE;
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+
+        upstreamCaller = new UpstreamCaller();
+        ReflectionTestUtils.setField(upstreamCaller, "connectTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(upstreamCaller, "readTimeoutMillis", 2000);
+        ReflectionTestUtils.setField(upstreamCaller, "maxAttempts", 3);
+        ReflectionTestUtils.setField(upstreamCaller, "backoffInitialMillis", 10L);
+        ReflectionTestUtils.setField(upstreamCaller, "backoffMaxMillis", 20L);
+        ReflectionTestUtils.invokeMethod(upstreamCaller, "init");
+
+        googleMapsService = new GoogleMapsService();
+        ReflectionTestUtils.setField(googleMapsService, "apiKey", "test-key");
+        ReflectionTestUtils.setField(googleMapsService, "batchConcurrency", 4);
+        ReflectionTestUtils.setField(googleMapsService, "dedupPrecision", 5);
+        ReflectionTestUtils.setField(googleMapsService, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(googleMapsService, "budgetShare", 1.0);
+        ReflectionTestUtils.setField(googleMapsService, "quotaPauseMillis", 200L);
+        ReflectionTestUtils.setField(googleMapsService, "reverseGeocodingUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/geocode");
+        ReflectionTestUtils.setField(googleMapsService, "upstreamCaller", upstreamCaller);
+        googleMapsService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        googleMapsService.shutdown();
+        ReflectionTestUtils.invokeMethod(upstreamCaller, "shutdown");
+        server.stop(0);
+    }
+
+    @Test
+    void looksUpNearlyIdenticalCoordinatesOnce() {
+        List<Map<String, Object>> results = googleMapsService.getAddressesFromCoordinates(List.of(
+                Map.of("latitude", 37.5665, "longitude", 126.9780),
+                Map.of("latitude", 37.566501, "longitude", 126.978001),
+                Map.of("latitude", 35.1796, "longitude", 129.0756),
+                Map.of("latitude", 999, "longitude", 0)));
+
+        assertEquals(2, requests.get());
+        assertEquals("서울특별시 중구 세종대로 110", results.get(0).get("address"));
+        assertEquals(results.get(0).get("address"), results.get(1).get("address"));
+        assertEquals("서울특별시 중구 세종대로 110", results.get(2).get("address"));
+        assertEquals("올바르지 않은 좌표입니다.", results.get(3).get("error"));
+    }
+
+    @Test
+    void retriesAfterPausingOnOverQueryLimit() {
+        overQueryLimitResponses = 1;
+
+        long startedAt = System.nanoTime();
+        List<Map<String, Object>> results = googleMapsService.getAddressesFromCoordinates(List.of(
+                Map.of("latitude", 37.5665, "longitude", 126.9780)));
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        assertEquals("서울특별시 중구 세종대로 110", results.get(0).get("address"));
+        assertEquals(2, requests.get());
+        // 재시도는 할당량 초과로 멈춘 시간이 지난 뒤에 나갑니다.
+        assertTrue(elapsedMillis >= 200, "elapsed " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void mergesCloseCoordinatesOnEitherSideOfRoundingBoundary() {
+        // 37.5665049와 37.5665051은 소수점 5자리 반올림 격자에서 서로 다른 칸에 놓입니다.
+        List<Map<String, Object>> results = googleMapsService.getAddressesFromCoordinates(List.of(
+                Map.of("latitude", 37.5665049, "longitude", 126.9780),
+                Map.of("latitude", 37.5665051, "longitude", 126.9780),
+                Map.of("latitude", 37.5665300, "longitude", 126.9780)));
+
+        // 세 번째 좌표는 첫 좌표와 2.5e-5(약 2.8m) 떨어져 따로 조회합니다.
+        assertEquals(2, requests.get());
+        assertEquals(results.get(0).get("address"), results.get(1).get("address"));
+    }
+
+    @Test
+    void failsFastWhenQuotaPauseOutlastsDeadline() {
+        overQueryLimitResponses = 1;
+        ReflectionTestUtils.setField(googleMapsService, "quotaPauseMillis", 5000L);
+
+        long startedAt = System.nanoTime();
+        UpstreamException e;
+        try (Deadline.Scope scope = Deadline.activate(Deadline.after(1000))) {
+            e = assertThrows(UpstreamException.class, () -> googleMapsService.getAddressFromCoordinates(37.5665, 126.9780));
+        }
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        assertEquals(429, e.getStatusCode());
+        assertEquals(1, requests.get());
+        // 멈춘 시간(5초)을 기다리지 않고 바로 실패합니다.
+        assertTrue(elapsedMillis < 500, "elapsed " + elapsedMillis + "ms");
+    }
+}
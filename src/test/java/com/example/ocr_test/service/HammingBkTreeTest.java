@@ -0,0 +1,86 @@
+package com.example.ocr_test.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HammingBkTreeTest {
+
+    @Test
+    void findsSameNearestDistanceAsBruteForce() {
+        Random random = new Random(42);
+        List<Long> hashes = new ArrayList<>();
+        HammingBkTree<Integer> tree = new HammingBkTree<>();
+
+        // 서로 가까운 해시가 모인 군집과 무작위 해시를 섞어 트리의 가지치기가 실제로 일어나도록 합니다.
+        for (int cluster = 0; cluster < 50; cluster++) {
+            long center = random.nextLong();
+            for (int i = 0; i < 20; i++) {
+                long hash = flipBits(center, random.nextInt(12), random);
+                tree.add(hash, hashes.size());
+                hashes.add(hash);
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            long hash = random.nextLong();
+            tree.add(hash, hashes.size());
+            hashes.add(hash);
+        }
+        assertEquals(hashes.size(), tree.size());
+
+        Predicate<Integer> even = index -> index % 2 == 0;
+        for (int query = 0; query < 300; query++) {
+            long hash = query % 2 == 0
+                    ? flipBits(hashes.get(random.nextInt(hashes.size())), random.nextInt(20), random)
+                    : random.nextLong();
+            for (int maxDistance : new int[] {0, 4, 10, 16, 24}) {
+                assertSameDistance(hashes, tree, hash, maxDistance, index -> true);
+                assertSameDistance(hashes, tree, hash, maxDistance, even);
+            }
+        }
+    }
+
+    @Test
+    void returnsNullForEmptyTreeOrNoCandidateInRange() {
+        HammingBkTree<String> tree = new HammingBkTree<>();
+        assertNull(tree.findNearest(0L, 64, value -> true));
+
+        tree.add(0L, "zero");
+        assertNull(tree.findNearest(-1L, 10, value -> true));
+        assertNull(tree.findNearest(0L, 0, value -> false));
+    }
+
+    private static void assertSameDistance(List<Long> hashes, HammingBkTree<Integer> tree, long hash,
+                                           int maxDistance, Predicate<Integer> filter) {
+        int expected = Integer.MAX_VALUE;
+        for (int i = 0; i < hashes.size(); i++) {
+            int distance = Long.bitCount(hashes.get(i) ^ hash);
+            if (distance <= maxDistance && filter.test(i)) {
+                expected = Math.min(expected, distance);
+            }
+        }
+
+        HammingBkTree.Match<Integer> match = tree.findNearest(hash, maxDistance, filter);
+        if (expected == Integer.MAX_VALUE) {
+            assertNull(match);
+            return;
+        }
+        assertEquals(expected, match.distance());
+        assertEquals(expected, Long.bitCount(hashes.get(match.value()) ^ hash));
+        assertTrue(filter.test(match.value()));
+    }
+
+    private static long flipBits(long hash, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            hash ^= 1L << random.nextInt(64);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.ocr_test.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageUploadTest {
+
+    private static final int MAX_BYTES = 1024;
+
+    @Test
+    void detectsFormatFromMagicBytes() {
+        assertEquals(ImageUpload.Format.JPEG, open(jpeg(100), 100).format());
+        assertEquals(ImageUpload.Format.PNG, open(withHead(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, 100), 100).format());
+    }
+
+    @Test
+    void rejectsUnknownFormatWith415() {
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> open("GIF89a-not-supported".getBytes(StandardCharsets.US_ASCII), -1));
+        assertEquals(415, e.getStatusCode());
+        assertEquals("JPEG, PNG, TIFF 이미지만 업로드 가능합니다.", e.getMessage());
+    }
+
+    @Test
+    void pointsPdfUploadsToPdfEndpoint() {
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> open("%PDF-1.7\n...".getBytes(StandardCharsets.US_ASCII), -1));
+        assertEquals(415, e.getStatusCode());
+        assertTrue(e.getMessage().contains("/upload-pdf"));
+    }
+
+    @Test
+    void rejectsEmptyBodyWith400() {
+        UploadRejectedException e = assertThrows(UploadRejectedException.class, () -> open(new byte[0], -1));
+        assertEquals(400, e.getStatusCode());
+    }
+
+    @Test
+    void rejectsDeclaredLengthOverLimitBeforeReading() {
+        CountingInputStream source = new CountingInputStream(jpeg(100));
+
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> ImageUpload.open(source, MAX_BYTES + 1, MAX_BYTES));
+        assertEquals(413, e.getStatusCode());
+        assertEquals(0, source.read);
+    }
+
+    @Test
+    void stopsWhenBodyGrowsPastLimit() {
+        ImageUpload upload = open(jpeg(MAX_BYTES + 100), -1);
+
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> upload.writeTo(new ByteArrayOutputStream()));
+        assertEquals(413, e.getStatusCode());
+        assertFalse(upload.isComplete());
+    }
+
+    @Test
+    void rejectsTruncatedBodyWith400() {
+        ImageUpload upload = open(jpeg(50), 100);
+
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> upload.writeTo(new ByteArrayOutputStream()));
+        assertEquals(400, e.getStatusCode());
+        assertTrue(e.getMessage().contains("50/100"));
+        assertThrows(IllegalStateException.class, upload::sha256);
+    }
+
+    @Test
+    void resendsFromStartAfterFailedAttempt() throws IOException {
+        byte[] image = jpeg(800);
+        ImageUpload upload = ImageUpload.open(new TrickleInputStream(image, 100), image.length, MAX_BYTES);
+
+        // 첫 시도는 300바이트를 보낸 뒤 외부 API 연결이 끊깁니다.
+        assertThrows(IOException.class, () -> upload.writeTo(new FailingOutputStream(300)));
+        assertFalse(upload.isComplete());
+
+        ByteArrayOutputStream retry = new ByteArrayOutputStream();
+        upload.writeTo(retry);
+
+        assertArrayEquals(image, retry.toByteArray());
+        assertArrayEquals(image, upload.bytes());
+        assertEquals(sha256(image), upload.sha256());
+
+        // 모두 받은 뒤에 다시 보내도 같은 본문을 씁니다.
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        upload.writeTo(again);
+        assertArrayEquals(image, again.toByteArray());
+    }
+
+    @Test
+    void completesShortBodyWhileReadingHead() {
+        byte[] image = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0x00};
+
+        ImageUpload upload = open(image, image.length);
+
+        assertTrue(upload.isComplete());
+        assertArrayEquals(image, upload.bytes());
+    }
+
+    private static ImageUpload open(byte[] body, long declaredLength) {
+        return ImageUpload.open(new ByteArrayInputStream(body), declaredLength, MAX_BYTES);
+    }
+
+    private static byte[] jpeg(int length) {
+        return withHead(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}, length);
+    }
+
+    private static byte[] withHead(byte[] head, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        return bytes;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 느린 회선처럼 한 번에 조금씩만 돌려주는 입력
+     */
+    private static final class TrickleInputStream extends InputStream {
+        private final ByteArrayInputStream source;
+        private final int maxRead;
+
+        TrickleInputStream(byte[] bytes, int maxRead) {
+            this.source = new ByteArrayInputStream(bytes);
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read() {
+            return source.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            return source.read(buffer, offset, Math.min(length, maxRead));
+        }
+    }
+
+    private static final class CountingInputStream extends InputStream {
+        private final ByteArrayInputStream source;
+        private int read;
+
+        CountingInputStream(byte[] bytes) {
+            this.source = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() {
+            int b = source.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            int n = source.read(buffer, offset, length);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * 정해진 바이트를 쓰고 나면 끊기는 외부 API 연결
+     */
+    private static final class FailingOutputStream extends OutputStream {
+        private int remaining;
+
+        FailingOutputStream(int limit) {
+            this.remaining = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            if (length > remaining) {
+                throw new IOException("connection reset");
+            }
+            remaining -= length;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.ocr_test.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MenuDictionaryTest {
+
+    private MenuDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new MenuDictionary();
+        ReflectionTestUtils.setField(dictionary, "enabled", true);
+        ReflectionTestUtils.setField(dictionary, "maxEdits", 2);
+        for (String name : List.of("김치찌개", "된장찌개", "라면", "라멘", "제육덮밥", "떡볶이", "삼겹살")) {
+            dictionary.add(name, name);
+        }
+        dictionary.add("코카콜라", "콜라");
+        dictionary.add("콜라", "콜라");
+    }
+
+    @Test
+    void correctsJamoLevelMisreads() {
+        assertEquals("김치찌개", dictionary.match("김치찌게").canonical());
+        assertEquals("제육덮밥", dictionary.match("제육덮빱").canonical());
+        assertEquals(0, dictionary.match("김치 찌개").distance());
+    }
+
+    @Test
+    void rejectsDistantOrAmbiguousNames() {
+        assertNull(dictionary.match("순두부찌개"));
+        // 라면, 라멘 모두 한 글자 차이
+        assertNull(dictionary.match("라먼"));
+    }
+
+    @Test
+    void canonicalizesAndCollapsesDuplicates() {
+        List<String> items = List.of("김치찌게", "김치찌개", "코카콜라", "우리집특제볶음", "우리집특제볶믐", "콜라");
+
+        assertEquals(List.of("김치찌개", "콜라", "우리집특제볶음"), dictionary.canonicalize(items));
+    }
+
+    @Test
+    void keepsVariantsThatDifferInDigitsLettersOrSuffix() {
+        assertNull(dictionary.match("떡볶이(소)"));
+        assertNull(dictionary.match("1인분 삼겹살"));
+
+        assertEquals(List.of("A세트", "B세트"), dictionary.canonicalize(List.of("A세트", "B세트")));
+        assertEquals(List.of("1인분 삼겹살", "2인분 삼겹살"), dictionary.canonicalize(List.of("1인분 삼겹살", "2인분 삼겹살")));
+        assertEquals(List.of("떡볶이(소)", "떡볶이(대)"), dictionary.canonicalize(List.of("떡볶이(소)", "떡볶이(대)")));
+    }
+
+    @Test
+    void collapsesUnmatchedNamesOnlyBySubstitutionInsideSyllables() {
+        // 한 음절이 빠진 경우는 자모 치환이 아니므로 합치지 않습니다.
+        assertEquals(List.of("우리집특제볶음", "우리집특제볶"), dictionary.canonicalize(List.of("우리집특제볶음", "우리집특제볶")));
+    }
+}
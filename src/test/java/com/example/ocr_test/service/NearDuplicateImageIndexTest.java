@@ -0,0 +1,260 @@
+package com.example.ocr_test.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearDuplicateImageIndexTest {
+
+    private NearDuplicateImageIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NearDuplicateImageIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxDistance", 10);
+        ReflectionTestUtils.setField(index, "minCorrelation", 0.95);
+        ReflectionTestUtils.setField(index, "maxBlockDifference", 0.25);
+        ReflectionTestUtils.setField(index, "aspectRatioTolerance", 0.1);
+        ReflectionTestUtils.setField(index, "capacity", 4);
+    }
+
+    @Test
+    void matchesRescaledAndBrightenedCopy() {
+        BufferedImage original = menuImage(1, 400, 300);
+        NearDuplicateImageIndex.Entry stored = index.store(NearDuplicateImageIndex.fingerprint(original), ocrResult());
+
+        BufferedImage copy = brighten(resize(original, 360, 270), 12);
+        assertSame(stored, index.findMatch(NearDuplicateImageIndex.fingerprint(copy)));
+    }
+
+    @Test
+    void rejectsSameTemplateWithDifferentPricesOrItems() {
+        BufferedImage original = templateMenu(1, 1, 1000, 1400);
+        index.store(NearDuplicateImageIndex.fingerprint(original), ocrResult());
+
+        // 같은 양식이라 전체 상관계수는 0.95를 넘지만, 가격 열이나 품목이 있는 블록이 다릅니다.
+        for (long seed = 2; seed < 5; seed++) {
+            assertNull(index.findMatch(NearDuplicateImageIndex.fingerprint(templateMenu(1, seed, 1000, 1400))), "prices " + seed);
+            assertNull(index.findMatch(NearDuplicateImageIndex.fingerprint(templateMenu(seed, 1, 1000, 1400))), "page " + seed);
+        }
+        // 같은 메뉴판을 줄이고 JPEG로 다시 저장한 사본은 일치합니다.
+        assertNotNull(index.findMatch(NearDuplicateImageIndex.fingerprint(jpeg(resize(original, 750, 1050)))));
+    }
+
+    @Test
+    void findsExactImageBySha256AndReturnsCopies() {
+        byte[] bytes = {1, 2, 3};
+        NearDuplicateImageIndex.Entry stored = index.store(
+                NearDuplicateImageIndex.fingerprint(menuImage(1, 400, 300)), ocrResult(), NearDuplicateImageIndex.sha256(bytes));
+
+        NearDuplicateImageIndex.Entry found = index.findExact(NearDuplicateImageIndex.sha256(bytes));
+        assertSame(stored, found);
+        assertNull(index.findExact(NearDuplicateImageIndex.sha256(new byte[] {1, 2, 4})));
+
+        // 받은 쪽에서 결과를 고쳐도 저장된 결과는 바뀌지 않습니다.
+        @SuppressWarnings("unchecked")
+        List<String> texts = (List<String>) found.getOcrResult().get("extractedTexts");
+        texts.add("추가");
+        assertEquals(List.of("김치찌개"), found.getOcrResult().get("extractedTexts"));
+    }
+
+    @Test
+    void comparesExtractedTextBeforeSharingMenuItems() {
+        NearDuplicateImageIndex.Entry stored = index.store(
+                NearDuplicateImageIndex.fingerprint(menuImage(1, 400, 300)), ocrResult());
+
+        assertTrue(stored.hasSameText(ocrResult()));
+        assertFalse(stored.hasSameText(Map.of("extractedTexts", List.of("김치찌개 9000"))));
+    }
+
+    @Test
+    void rejectsDifferentMenuImage() {
+        index.store(NearDuplicateImageIndex.fingerprint(menuImage(1, 400, 300)), ocrResult());
+
+        assertNull(index.findMatch(NearDuplicateImageIndex.fingerprint(menuImage(2, 400, 300))));
+    }
+
+    @Test
+    void verificationRejectsHashCollisionWithDifferentThumbnail() {
+        NearDuplicateImageIndex.ImageFingerprint stored = new NearDuplicateImageIndex.ImageFingerprint(
+                0x0F0F0F0F0F0F0F0FL, gradient(false), 400, 300);
+        index.store(stored, ocrResult());
+
+        // dHash가 같아도 썸네일 밝기 분포가 다르면 다른 이미지입니다.
+        assertNull(index.findMatch(new NearDuplicateImageIndex.ImageFingerprint(
+                stored.dHash(), gradient(true), 400, 300)));
+        // dHash와 썸네일이 같아도 가로세로 비율이 크게 다르면 다른 이미지입니다.
+        assertNull(index.findMatch(new NearDuplicateImageIndex.ImageFingerprint(
+                stored.dHash(), stored.thumbnail(), 300, 400)));
+        // 같은 지문은 일치합니다.
+        assertNotNull(index.findMatch(new NearDuplicateImageIndex.ImageFingerprint(
+                stored.dHash(), stored.thumbnail(), 800, 600)));
+    }
+
+    @Test
+    void evictsOldestEntriesAndRebuildsTree() {
+        List<NearDuplicateImageIndex.ImageFingerprint> fingerprints = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            NearDuplicateImageIndex.ImageFingerprint fingerprint = NearDuplicateImageIndex.fingerprint(menuImage(10 + i, 200, 200));
+            fingerprints.add(fingerprint);
+            index.store(fingerprint, ocrResult(), "sha-" + i);
+        }
+
+        // 용량 4를 넘은 앞의 3개는 제거되고, 제거된 항목이 용량의 절반을 넘으면 트리를 다시 만듭니다.
+        for (int i = 0; i < 3; i++) {
+            assertNull(index.findMatch(fingerprints.get(i)), "evicted " + i);
+            assertNull(index.findExact("sha-" + i), "evicted " + i);
+        }
+        for (int i = 3; i < 7; i++) {
+            assertNotNull(index.findMatch(fingerprints.get(i)), "live " + i);
+            assertNotNull(index.findExact("sha-" + i), "live " + i);
+        }
+        HammingBkTree<?> tree = (HammingBkTree<?>) ReflectionTestUtils.getField(index, "tree");
+        assertEquals(4, tree.size());
+        assertEquals(4, index.getStats().get("indexedImages"));
+    }
+
+    /**
+     * 흰 바탕에 글자 줄처럼 보이는 어두운 막대를 무작위로 그린 메뉴판 이미지
+     */
+    private static BufferedImage menuImage(long seed, int width, int height) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        for (int i = 0; i < 40; i++) {
+            int gray = random.nextInt(120);
+            graphics.setColor(new Color(gray, gray, gray));
+            graphics.fillRect(random.nextInt(width), random.nextInt(height),
+                    width / 10 + random.nextInt(width / 3), height / 30 + random.nextInt(height / 10));
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * 머리띠와 테두리가 있는 양식에 품목 10줄과 가격을 글자 모양 막대로 그린 메뉴판 이미지
+     * itemsSeed가 같고 pricesSeed만 다르면 같은 양식에 가격만 다른 메뉴판이 됩니다.
+     */
+    private static BufferedImage templateMenu(long itemsSeed, long pricesSeed, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(250, 245, 235));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(new Color(60, 30, 20));
+        graphics.fillRect(0, 0, width, height / 8);
+        graphics.setStroke(new BasicStroke(3));
+        graphics.drawRect(10, height / 8 + 10, width - 20, height - height / 8 - 20);
+
+        Random items = new Random(itemsSeed);
+        Random prices = new Random(pricesSeed);
+        int rowHeight = (height - height / 8 - 40) / 10;
+        graphics.setColor(Color.DARK_GRAY);
+        for (int row = 0; row < 10; row++) {
+            int y = height / 8 + 25 + row * rowHeight;
+            int x = 30;
+            int glyphs = 3 + items.nextInt(4);
+            for (int i = 0; i < glyphs; i++, x += rowHeight * 7 / 10) {
+                glyph(graphics, items, x, y, rowHeight * 6 / 10);
+            }
+            x = width - 30 - 5 * rowHeight / 2;
+            for (int i = 0; i < 5; i++, x += rowHeight / 2) {
+                glyph(graphics, prices, x, y, rowHeight / 2);
+            }
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static void glyph(Graphics2D graphics, Random random, int x, int y, int size) {
+        for (int stroke = 0; stroke < 4; stroke++) {
+            if (random.nextBoolean()) {
+                graphics.fillRect(x + random.nextInt(size / 2 + 1), y, Math.max(2, size / 8), size);
+            } else {
+                graphics.fillRect(x, y + random.nextInt(size / 2 + 1), size, Math.max(2, size / 8));
+            }
+        }
+    }
+
+    private static BufferedImage jpeg(BufferedImage source) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(source, "jpg", out);
+            return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return image;
+    }
+
+    private static BufferedImage brighten(BufferedImage source, int amount) {
+        BufferedImage image = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                Color color = new Color(source.getRGB(x, y));
+                image.setRGB(x, y, new Color(Math.min(255, color.getRed() + amount),
+                        Math.min(255, color.getGreen() + amount), Math.min(255, color.getBlue() + amount)).getRGB());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * 왼쪽에서 오른쪽(또는 위에서 아래)으로 밝아지는 64x64 썸네일
+     */
+    private static byte[] gradient(boolean vertical) {
+        byte[] thumbnail = new byte[64 * 64];
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                thumbnail[y * 64 + x] = (byte) ((vertical ? y : x) * 4);
+            }
+        }
+        return thumbnail;
+    }
+
+    private static Map<String, Object> ocrResult() {
+        Map<String, Object> textBox = new HashMap<>();
+        textBox.put("text", "김치찌개");
+        textBox.put("vertices", List.of(
+                Map.of("x", 10, "y", 10), Map.of("x", 100, "y", 10),
+                Map.of("x", 100, "y", 40), Map.of("x", 10, "y", 40)));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("extractedTexts", List.of("김치찌개"));
+        result.put("textBoxes", List.of(textBox));
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.ocr_test.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 클로바 OCR 응답 예제(src/test/resources/ocr-fixtures)로 행 단위 직렬화 결과와
+ * 메뉴 분석 프롬프트 크기 변화를 확인합니다.
+ */
+class OcrLayoutSerializerTest {
+
+    private static final List<String> FIXTURES = List.of("single-column", "two-column", "noisy-cafe");
+
+    private ClovaOcrService clovaOcrService;
+
+    @BeforeEach
+    void setUp() {
+        clovaOcrService = new ClovaOcrService();
+        ReflectionTestUtils.setField(clovaOcrService, "minConfidence", 0.5);
+    }
+
+    @Test
+    void joinsNameAndPriceIntoOneRow() throws IOException {
+        List<String> menuLines = menuLines(parse("single-column"));
+
+        assertTrue(menuLines.contains("김치 찌개 8000"));
+        assertTrue(menuLines.contains("해물 파전 15000"));
+        assertFalse(menuLines.stream().anyMatch(line -> line.contains("··")));
+    }
+
+    @Test
+    void splitsTwoColumnRows() throws IOException {
+        List<String> menuLines = menuLines(parse("two-column"));
+
+        assertTrue(menuLines.contains("떡볶이 4000"));
+        assertTrue(menuLines.contains("참치김밥 4000"));
+    }
+
+    @Test
+    void dropsLowConfidenceAndSeparatorFields() throws IOException {
+        List<String> menuLines = menuLines(parse("noisy-cafe"));
+
+        assertTrue(menuLines.contains("아메리카노 HOT 4500"));
+        assertFalse(menuLines.stream().anyMatch(line -> line.contains("ㅁㄴ") || line.contains("---") || line.contains("|")));
+    }
+
+    /**
+     * 예제별로 기존 방식(필드마다 한 줄)과 행 단위 방식의 프롬프트 토큰 수 추정치를 출력합니다.
+     */
+    @Test
+    void reducesPromptTokens() throws IOException {
+        int totalBefore = 0;
+        int totalAfter = 0;
+        for (String fixture : FIXTURES) {
+            Map<String, Object> result = parse(fixture);
+            @SuppressWarnings("unchecked")
+            List<String> extractedTexts = (List<String>) result.get("extractedTexts");
+
+            int before = estimateTokens(String.join("\n", extractedTexts));
+            int after = estimateTokens(String.join("\n", menuLines(result)));
+            totalBefore += before;
+            totalAfter += after;
+
+            // 두 단 메뉴판은 가격 쪽 필드가 적어 줄어드는 폭이 가장 작습니다. (약 38%)
+            assertTrue(reduction(before, after) >= 0.30, fixture + " 프롬프트 감소율 " + reduction(before, after));
+        }
+        // 전체로는 절반 이상 줄어듭니다. (약 56%)
+        assertTrue(reduction(totalBefore, totalAfter) >= 0.50, "전체 프롬프트 감소율 " + reduction(totalBefore, totalAfter));
+    }
+
+    private static double reduction(int before, int after) {
+        return (double) (before - after) / before;
+    }
+
+    private Map<String, Object> parse(String fixture) throws IOException {
+        String json = new ClassPathResource("ocr-fixtures/" + fixture + ".json").getContentAsString(StandardCharsets.UTF_8);
+        return clovaOcrService.parseOcrResponseWithCoordinates(json);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> menuLines(Map<String, Object> result) {
+        return (List<String>) result.get("menuLines");
+    }
+
+    /**
+     * BPE 토크나이저(cl100k 계열) 기준 토큰 수 근사치
+     * 한글 음절은 1토큰, 연속된 영문/숫자는 4글자당 1토큰, 공백이 아닌 기호와 줄바꿈은 1토큰으로 셉니다.
+     */
+    private static int estimateTokens(String text) {
+        int tokens = 0;
+        int alphanumericRun = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0xAC00 && c <= 0xD7A3) {
+                tokens += (alphanumericRun + 3) / 4 + 1;
+                alphanumericRun = 0;
+            } else if (Character.isLetterOrDigit(c)) {
+                alphanumericRun++;
+            } else {
+                tokens += (alphanumericRun + 3) / 4;
+                alphanumericRun = 0;
+                if (c == '\n' || !Character.isWhitespace(c)) {
+                    tokens++;
+                }
+            }
+        }
+        return tokens + (alphanumericRun + 3) / 4;
+    }
+}
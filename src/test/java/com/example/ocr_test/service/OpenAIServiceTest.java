@@ -0,0 +1,17 @@
+package com.example.ocr_test.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OpenAIServiceTest {
+
+    @Test
+    void cleansMenuLineInSinglePass() {
+        assertEquals("김치찌개", OpenAIService.cleanMenuLine("1. 김치찌개 8,000원"));
+        assertEquals("된장찌개", OpenAIService.cleanMenuLine("- \"된장찌개\","));
+        assertNull(OpenAIService.cleanMenuLine("```json"));
+        assertNull(OpenAIService.cleanMenuLine("12000"));
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.ocr_test.service;
+
+import com.example.ocr_test.resilience.Deadline;
+import com.example.ocr_test.resilience.DeadlineExceededException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 메모리에서 만든 PDF로 페이지 OCR 순서, 동시 처리 수 제한, 실패 처리를 확인합니다.
+ */
+class PdfOcrServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private StubClovaOcrService clovaOcrService;
+    private PdfOcrService pdfOcrService;
+
+    @BeforeEach
+    void setUp() {
+        clovaOcrService = new StubClovaOcrService();
+        pdfOcrService = new PdfOcrService();
+        ReflectionTestUtils.setField(pdfOcrService, "clovaOcrService", clovaOcrService);
+        ReflectionTestUtils.setField(pdfOcrService, "concurrency", 2);
+        ReflectionTestUtils.setField(pdfOcrService, "threadPoolSize", 8);
+        ReflectionTestUtils.setField(pdfOcrService, "renderDpi", 18f);
+        ReflectionTestUtils.setField(pdfOcrService, "maxPages", 20);
+        ReflectionTestUtils.invokeMethod(pdfOcrService, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(pdfOcrService, "shutdown");
+    }
+
+    @Test
+    void combinesPagesInPageOrderWhateverOrderTheyFinish() throws IOException {
+        // 앞 페이지일수록 늦게 끝납니다.
+        clovaOcrService.delayMillis = page -> (7 - page) * 30L;
+
+        Map<String, Object> result = pdfOcrService.extractText(pdf(6));
+
+        assertEquals(List.of("page-1", "page-2", "page-3", "page-4", "page-5", "page-6"), result.get("extractedTexts"));
+        assertEquals(List.of("line-1", "line-2", "line-3", "line-4", "line-5", "line-6"), result.get("menuLines"));
+    }
+
+    @Test
+    void boundsPagesInFlightAndSerializesListener() throws IOException {
+        clovaOcrService.delayMillis = page -> 50L;
+        AtomicInteger listenersRunning = new AtomicInteger();
+        AtomicInteger maxListenersRunning = new AtomicInteger();
+        List<Map<String, Object>> pages = Collections.synchronizedList(new ArrayList<>());
+
+        int pageCount = pdfOcrService.processPdf(pdf(8), pageResult -> {
+            maxListenersRunning.accumulateAndGet(listenersRunning.incrementAndGet(), Math::max);
+            sleep(20);
+            pages.add(pageResult);
+            listenersRunning.decrementAndGet();
+        });
+
+        assertEquals(8, pageCount);
+        assertEquals(8, pages.size());
+        assertEquals(2, clovaOcrService.maxInFlight.get());
+        assertEquals(1, maxListenersRunning.get());
+        for (Map<String, Object> page : pages) {
+            assertTrue((Integer) page.get("width") > 0 && (Integer) page.get("height") > 0);
+        }
+    }
+
+    @Test
+    void reportsFailedPageAndFailsCombinedResult() throws IOException {
+        clovaOcrService.failingPage = 2;
+        List<Map<String, Object>> pages = Collections.synchronizedList(new ArrayList<>());
+
+        pdfOcrService.processPdf(pdf(3), pages::add);
+
+        Map<String, Object> failed = pages.stream().filter(page -> page.get("page").equals(2)).findFirst().orElseThrow();
+        assertEquals("OCR API 호출 실패: 500", failed.get("error"));
+        assertEquals(3, pages.size());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> pdfOcrService.extractText(pdf(3)));
+        assertTrue(e.getMessage().contains("2페이지: OCR API 호출 실패: 500"), e.getMessage());
+    }
+
+    @Test
+    void stopsCallingListenerAfterItFails() throws Exception {
+        clovaOcrService.delayMillis = page -> page == 1 ? 0L : 100L;
+        AtomicInteger calls = new AtomicInteger();
+
+        // 클라이언트 연결이 끊겨 첫 줄을 쓰다가 실패한 경우
+        assertThrows(UncheckedIOException.class, () -> pdfOcrService.processPdf(pdf(6), pageResult -> {
+            calls.incrementAndGet();
+            throw new UncheckedIOException(new IOException("broken pipe"));
+        }));
+
+        int callsAtReturn = calls.get();
+        Thread.sleep(400);
+        assertEquals(callsAtReturn, calls.get());
+    }
+
+    @Test
+    void stopsRenderingPagesWhenDeadlineHasPassed() throws IOException {
+        File pdf = pdf(3);
+
+        try (Deadline.Scope scope = Deadline.activate(Deadline.after(0))) {
+            DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                    () -> pdfOcrService.processPdf(pdf, pageResult -> { }));
+            assertTrue(e.getMessage().contains("1페이지부터"));
+        }
+        assertEquals(0, clovaOcrService.calls.get());
+    }
+
+    @Test
+    void rejectsTooManyPages() throws IOException {
+        ReflectionTestUtils.setField(pdfOcrService, "maxPages", 2);
+
+        assertThrows(IllegalArgumentException.class, () -> pdfOcrService.processPdf(pdf(3), pageResult -> { }));
+        assertEquals(0, clovaOcrService.calls.get());
+    }
+
+    private File pdf(int pageCount) throws IOException {
+        File file = File.createTempFile("menu-", ".pdf", tempDir.toFile());
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pageCount; i++) {
+                document.addPage(new PDPage(PDRectangle.A6));
+            }
+            document.save(file);
+        }
+        return file;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 파일 이름의 페이지 번호로 결과를 만들어 돌려주는 OCR 서비스
+     */
+    private static final class StubClovaOcrService extends ClovaOcrService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private volatile IntToLongFunction delayMillis = page -> 0L;
+        private volatile int failingPage;
+
+        @Override
+        public Map<String, Object> extractTextFromImage(byte[] imageBytes, String fileName, String contentType) throws IOException {
+            int page = Integer.parseInt(fileName.substring("page-".length(), fileName.indexOf('.')));
+            calls.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                sleep(delayMillis.applyAsLong(page));
+                if (page == failingPage) {
+                    throw new IOException("OCR API 호출 실패: 500");
+                }
+                return Map.of("extractedTexts", List.of("page-" + page), "menuLines", List.of("line-" + page),
+                        "textBoxes", List.of());
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.ocr_test.trace;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LogSanitizerTest {
+
+    @Test
+    void redactsSecretQueryParameters() {
+        assertEquals("https://maps.googleapis.com/maps/api/geocode/json?latlng=37.5,126.9&key=***&language=ko",
+                LogSanitizer.redactUrl("https://maps.googleapis.com/maps/api/geocode/json?latlng=37.5,126.9&key=AIzaSyABC&language=ko"));
+        assertEquals("https://example.com/?API_KEY=***&token=***",
+                LogSanitizer.redactUrl("https://example.com/?API_KEY=abc&token=def"));
+        assertEquals("https://example.com/?apikey=***", LogSanitizer.redactUrl("https://example.com/?apikey=abc"));
+        assertNull(LogSanitizer.redactUrl(null));
+    }
+
+    @Test
+    void leavesOtherParametersAlone() {
+        assertEquals("https://example.com/?monkey=1&keyword=menu",
+                LogSanitizer.redactUrl("https://example.com/?monkey=1&keyword=menu"));
+    }
+
+    @Test
+    void truncatesLongValuesWithOriginalLength() {
+        assertEquals("abc", LogSanitizer.truncate("abc", 3));
+        assertEquals("ab...(3 chars)", LogSanitizer.truncate("abc", 2));
+        assertNull(LogSanitizer.truncate(null, 2));
+    }
+}
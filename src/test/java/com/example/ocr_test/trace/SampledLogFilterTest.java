@@ -0,0 +1,36 @@
+package com.example.ocr_test.trace;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SampledLogFilterTest {
+
+    private final SampledLogFilter filter = new SampledLogFilter();
+
+    @Test
+    void dropsInfoAndBelowOfUnsampledRequests() {
+        assertEquals(FilterReply.DENY, filter.decide(event(Level.INFO, "false")));
+        assertEquals(FilterReply.DENY, filter.decide(event(Level.DEBUG, "false")));
+    }
+
+    @Test
+    void keepsWarningsSampledRequestsAndLogsOutsideRequests() {
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(Level.WARN, "false")));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(Level.ERROR, "false")));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(Level.INFO, "true")));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(Level.INFO, null)));
+    }
+
+    private static LoggingEvent event(Level level, String sampled) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLevel(level);
+        event.setMDCPropertyMap(sampled != null ? Map.of(Trace.MDC_SAMPLED, sampled) : Map.of());
+        return event;
+    }
+}
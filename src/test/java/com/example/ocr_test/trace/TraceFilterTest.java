@@ -0,0 +1,78 @@
+package com.example.ocr_test.trace;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * http 구간이 동기 응답은 필터 체인이 끝날 때, 스트리밍 응답은 응답 쓰기가 끝날 때 닫히는지 확인합니다.
+ */
+class TraceFilterTest {
+
+    private final Logger spanLogger = (Logger) LoggerFactory.getLogger(Span.class);
+    private final ListAppender<ILoggingEvent> spans = new ListAppender<>();
+    private final TraceFilter filter = new TraceFilter();
+
+    @BeforeEach
+    void setUp() {
+        Trace.configure(true, 1.0);
+        spans.start();
+        spanLogger.addAppender(spans);
+    }
+
+    @AfterEach
+    void tearDown() {
+        spanLogger.detachAppender(spans);
+        Trace.configure(true, 0.1);
+    }
+
+    @Test
+    void closesSpanWhenChainReturns() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/upload");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> ((MockHttpServletResponse) res).setStatus(201));
+
+        assertEquals(1, spans.list.size());
+        assertEquals("201", tags(spans.list.get(0)).get("status"));
+        assertTrue(response.getHeader(TraceFilter.TRACE_ID_HEADER) != null);
+    }
+
+    @Test
+    void keepsSpanOpenUntilAsyncResponseCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/upload-pdf");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        // 필터 체인은 돌아왔지만 응답은 아직 쓰는 중입니다.
+        assertTrue(spans.list.isEmpty());
+
+        Thread.sleep(50);
+        response.setStatus(200);
+        request.getAsyncContext().complete();
+
+        assertEquals(1, spans.list.size());
+        Map<String, String> tags = tags(spans.list.get(0));
+        assertEquals("200", tags.get("status"));
+        assertEquals("/upload-pdf", tags.get("path"));
+        assertTrue(Long.parseLong(tags.get("durationMs")) >= 50, tags.toString());
+    }
+
+    private static Map<String, String> tags(ILoggingEvent event) {
+        return event.getKeyValuePairs().stream()
+                .collect(Collectors.toMap(pair -> pair.key, pair -> String.valueOf(pair.value)));
+    }
+}
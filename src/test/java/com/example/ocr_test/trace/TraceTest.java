@@ -0,0 +1,52 @@
+package com.example.ocr_test.trace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceTest {
+
+    @AfterEach
+    void tearDown() {
+        Trace.configure(true, 0.1);
+    }
+
+    @Test
+    void samplesByConfiguredRate() {
+        Trace.configure(true, 1.0);
+        assertTrue(Trace.newTrace(null).isSampled());
+
+        Trace.configure(true, 0.0);
+        assertFalse(Trace.newTrace(null).isSampled());
+
+        Trace.configure(true, 0.3);
+        int sampled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (Trace.newTrace(null).isSampled()) {
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 2_700 && sampled < 3_300, "sampled " + sampled);
+    }
+
+    @Test
+    void returnsNoTraceWhenDisabled() {
+        Trace.configure(false, 1.0);
+
+        assertNull(Trace.newTrace("abc"));
+        assertEquals(Span.NOOP, Trace.span("http"));
+    }
+
+    @Test
+    void keepsOnlyWellFormedRequestedId() {
+        assertEquals("client-trace_1.2", Trace.newTrace("client-trace_1.2").getTraceId());
+        assertNotEquals("bad id\r\n", Trace.newTrace("bad id\r\n").getTraceId());
+        assertNotEquals("x".repeat(65), Trace.newTrace("x".repeat(65)).getTraceId());
+        assertEquals(16, Trace.newTrace(null).getTraceId().length());
+    }
+}